@@ -0,0 +1,102 @@
+package com.api.usercontrol.benchmarks;
+
+import com.api.usercontrol.utils.CpfValidator;
+import com.api.usercontrol.utils.Tools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass {@link CpfValidator} with the validation it replaced in
+ * {@link Tools#isValidCpf}, on valid, invalid, repeated digit and formatted CPFs, and measures
+ * {@link Tools#isValidCpf} itself, the entry point of the registration rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CpfValidatorBenchmark {
+
+    @Param({"52998224725", "52998224724", "11111111111", "529.982.247-25"})
+    public String cpf;
+
+    @Benchmark
+    public boolean replaceAndCompare() {
+        return isValidCpfByReplace(cpf);
+    }
+
+    @Benchmark
+    public boolean singlePass() {
+        return CpfValidator.isValid(cpf);
+    }
+
+    @Benchmark
+    public long singlePassPacked() {
+        return CpfValidator.pack(cpf);
+    }
+
+    @Benchmark
+    public boolean tools() {
+        return Tools.isValidCpf(cpf);
+    }
+
+    //region previous implementation of Tools.isValidCpf, kept as baseline
+    private static boolean isValidCpfByReplace(String cpf) {
+        cpf = removeCaracteresEspeciais(cpf);
+
+        if (cpf.equals("00000000000") || cpf.equals("11111111111") || cpf.equals("22222222222") || cpf.equals("33333333333") || cpf.equals("44444444444") || cpf.equals("55555555555") || cpf.equals("66666666666") || cpf.equals("77777777777") || cpf.equals("88888888888") || cpf.equals("99999999999") || (cpf.length() != 11))
+            return (false);
+
+        char dig10, dig11;
+        int sm, i, r, num, peso;
+
+        sm = 0;
+        peso = 10;
+        for (i = 0; i < 9; i++) {
+            num = (int) (cpf.charAt(i) - 48);
+            sm = sm + (num * peso);
+            peso = peso - 1;
+        }
+
+        r = 11 - (sm % 11);
+        if ((r == 10) || (r == 11))
+            dig10 = '0';
+        else
+            dig10 = (char) (r + 48);
+
+        sm = 0;
+        peso = 11;
+        for (i = 0; i < 10; i++) {
+            num = (int) (cpf.charAt(i) - 48);
+            sm = sm + (num * peso);
+            peso = peso - 1;
+        }
+
+        r = 11 - (sm % 11);
+        if ((r == 10) || (r == 11))
+            dig11 = '0';
+        else
+            dig11 = (char) (r + 48);
+
+        return (dig10 == cpf.charAt(9)) && (dig11 == cpf.charAt(10));
+    }
+
+    private static String removeCaracteresEspeciais(String doc) {
+        if (doc.contains(".")) {
+            doc = doc.replace(".", "");
+        }
+        if (doc.contains("-")) {
+            doc = doc.replace("-", "");
+        }
+        if (doc.contains("/")) {
+            doc = doc.replace("/", "");
+        }
+        return doc;
+    }
+    //endregion
+}
@@ -0,0 +1,50 @@
+package com.api.usercontrol.benchmarks;
+
+import com.api.usercontrol.configs.Config;
+import com.api.usercontrol.utils.EmailValidator;
+import com.api.usercontrol.utils.Tools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the hand-written {@link EmailValidator} with {@link Config#EMAIL_REGEXP_FORMAT}, both
+ * compiled on each call, as {@code String.matches} did in {@link Tools#isValidEmail}, and precompiled,
+ * and measures {@link Tools#isValidEmail} itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailValidatorBenchmark {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(Config.EMAIL_REGEXP_FORMAT, Pattern.CASE_INSENSITIVE);
+
+    @Param({"email@fake.com", "first.last+tag@sub-domain.example.museum", "incorrectEmail", "email@fake.company"})
+    public String email;
+
+    @Benchmark
+    public boolean regexCompiledPerCall() {
+        return email.matches(Config.EMAIL_REGEXP_FORMAT);
+    }
+
+    @Benchmark
+    public boolean regexPrecompiled() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean stateMachine() {
+        return EmailValidator.isValidIgnoreCase(email);
+    }
+
+    @Benchmark
+    public boolean tools() {
+        return Tools.isValidEmail(email);
+    }
+}
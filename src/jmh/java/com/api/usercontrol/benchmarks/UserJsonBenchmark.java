@@ -0,0 +1,71 @@
+package com.api.usercontrol.benchmarks;
+
+import com.api.usercontrol.configs.Config;
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.models.UserModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openapitools.jackson.nullable.JsonNullableModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson reading the request bodies and writing the responses, with the {@link Config}
+ * ObjectMapper and the {@link JsonNullableModule} registered as the application does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserJsonBenchmark {
+    private static final byte[] NEW_USER_JSON = ("{\"cpf\":\"52998224725\",\"firstName\":\"First Name\","
+            + "\"lastName\":\"Last Name\",\"dateOfBirth\":\"1989-01-01\",\"email\":\"email@fake.com\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CHANGES_JSON = "{\"firstName\":\"New First Name\",\"email\":null}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ObjectMapper objectMapper;
+    private UserModel userModel;
+
+    @Setup
+    public void setUp() {
+        Config config = new Config();
+        objectMapper = config.objectMapper();
+        config.jsonNullableModule(objectMapper);
+
+        userModel = UserModel.builder()
+                .cpf("52998224725")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .version(3L)
+                .build();
+    }
+
+    @Benchmark
+    public UserDto readNewUser() throws IOException {
+        return objectMapper.readValue(NEW_USER_JSON, UserDto.class);
+    }
+
+    @Benchmark
+    public UserDto readChanges() throws IOException {
+        return objectMapper.readValue(CHANGES_JSON, UserDto.class);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return objectMapper.writeValueAsBytes(userModel);
+    }
+}
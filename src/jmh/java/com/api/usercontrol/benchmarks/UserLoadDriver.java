@@ -0,0 +1,180 @@
+package com.api.usercontrol.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load driver for comparing the servlet and the reactive stacks, or the servlet stack
+ * on platform and on virtual threads: it keeps the given number of lookups by CPF in flight for
+ * the given time and prints the throughput and latency percentiles. Given several numbers of
+ * clients, it prints a line for each, showing how the throughput scales once the database pool
+ * is the bottleneck. Run it against each stack started with the same database pool size:
+ * <pre>
+ * mvn -P jmh -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.api.usercontrol.benchmarks.UserLoadDriver \
+ *     -Dexec.args="http://localhost:8080 10,100,1000 30"
+ * </pre>
+ * Arguments: base URL, comma separated numbers of concurrent requests, seconds to run each of them,
+ * and the CPFs looked up in turn, or a path requested instead, such as {@code /api/user?size=500}
+ * to read pages that miss the user cache.
+ * <p>
+ * Without CPFs it looks up a spread of {@value #DEFAULT_CPFS} CPFs, many more than the servlet
+ * stack's user cache and negative cache hold, so the lookups reach the database on both stacks,
+ * the reactive one having no cache. Given the CPFs of registered users, start the servlet stack with
+ * {@code --usercontrol.cache.maximum-size=0 --usercontrol.cache.negative-maximum-size=0}, or the
+ * cache answers them and the comparison measures it instead of the stack.
+ * <p>
+ * While it runs, it samples the Hikari gauges of the actuator and prints how many connections were
+ * in use on average, out of the pool size, and the most requests waiting for one. Comparing them
+ * with {@code spring.jpa.open-in-view} on and off shows how long each request holds its connection.
+ */
+public class UserLoadDriver {
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final Duration POOL_SAMPLING_INTERVAL = Duration.ofMillis(100);
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.eE+-]+)");
+    private static final int DEFAULT_CPFS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int[] concurrencies = Arrays.stream((args.length > 1 ? args[1] : "1000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        String[] paths = Arrays.stream(args.length > 3 ? args[3].split(",") : spreadOfCpfs(DEFAULT_CPFS))
+                .map(target -> target.startsWith("/") ? target : "/api/user/" + target)
+                .toArray(String[]::new);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        System.out.printf("Warming up %s for %ds%n", baseUrl, WARM_UP.getSeconds());
+        run(client, baseUrl, paths, concurrencies[0], WARM_UP);
+        double poolSize = readMetric(client, baseUrl, "hikaricp.connections.max");
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int concurrency : concurrencies) {
+            PoolUsage poolUsage = new PoolUsage();
+            ScheduledFuture<?> sampling = sampler.scheduleAtFixedRate(() -> poolUsage.sample(
+                            readMetric(client, baseUrl, "hikaricp.connections.active"),
+                            readMetric(client, baseUrl, "hikaricp.connections.pending")),
+                    0, POOL_SAMPLING_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+            Result result = run(client, baseUrl, paths, concurrency, duration);
+            sampling.cancel(false);
+
+            long[] latencies = result.latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(latencies);
+            System.out.printf("clients:%d requests:%d errors:%d throughput:%.1f req/s p50:%.2fms p99:%.2fms max:%.2fms"
+                            + " pool-active:%.1f/%.0f pool-pending-max:%.0f%n",
+                    concurrency, latencies.length, result.errors.get(), latencies.length / (double) duration.getSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0),
+                    poolUsage.averageActive(), poolSize, poolUsage.maxPending());
+        }
+        sampler.shutdownNow();
+    }
+
+    private static Result run(HttpClient client, String baseUrl, String[] paths, int concurrency, Duration duration)
+            throws InterruptedException {
+        Result result = new Result();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        long sent = 0;
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + paths[(int) (sent++ % paths.length)]))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (error != null || response.statusCode() >= 500) {
+                    result.errors.incrementAndGet();
+                } else {
+                    result.latencies.add(System.nanoTime() - start);
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(concurrency);
+        return result;
+    }
+
+    // the same CPFs on every run, so the stacks compared are asked the same
+    private static String[] spreadOfCpfs(int count) {
+        return new Random(count).longs(0, 100_000_000_000L)
+                .distinct()
+                .limit(count)
+                .mapToObj(cpf -> String.format("%011d", cpf))
+                .toArray(String[]::new);
+    }
+
+    // NaN when the actuator does not publish the metric, such as on a stack without a Hikari pool
+    private static double readMetric(HttpClient client, String baseUrl, String metric) {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + metric))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher value = METRIC_VALUE.matcher(response.body());
+            return response.statusCode() == 200 && value.find() ? Double.parseDouble(value.group(1)) : Double.NaN;
+        } catch (IOException e) {
+            return Double.NaN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        }
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class PoolUsage {
+        private double activeTotal;
+        private int samples;
+        private double maxPending = Double.NaN;
+
+        private synchronized void sample(double active, double pending) {
+            if (!Double.isNaN(active)) {
+                activeTotal += active;
+                samples++;
+            }
+            if (!Double.isNaN(pending)) {
+                maxPending = Double.isNaN(maxPending) ? pending : Math.max(maxPending, pending);
+            }
+        }
+
+        private synchronized double averageActive() {
+            return samples == 0 ? Double.NaN : activeTotal / samples;
+        }
+
+        private synchronized double maxPending() {
+            return maxPending;
+        }
+    }
+
+    private static final class Result {
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,86 @@
+package com.api.usercontrol.benchmarks;
+
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.mappers.JsonNullableMapperImpl;
+import com.api.usercontrol.mappers.UserMapper;
+import com.api.usercontrol.mappers.UserMapperImpl;
+import com.api.usercontrol.models.UserModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openapitools.jackson.nullable.JsonNullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated {@link UserMapper} in both directions and applying a partial update, wired by
+ * Spring as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserMapperBenchmark {
+    private AnnotationConfigApplicationContext context;
+    private UserMapper mapper;
+    private UserModel userModel;
+    private UserDto userDto;
+    private UserDto changes;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(UserMapperImpl.class, JsonNullableMapperImpl.class);
+        mapper = context.getBean(UserMapper.class);
+
+        userModel = UserModel.builder()
+                .cpf("52998224725")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build();
+        userDto = UserDto.builder()
+                .cpf("52998224725")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email(JsonNullable.of("email@fake.com"))
+                .build();
+        changes = UserDto.builder()
+                .firstName("New First Name")
+                .email(JsonNullable.of("new_email@fake.com"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserModel mapToModel() {
+        return mapper.map(userDto);
+    }
+
+    @Benchmark
+    public UserDto mapToDto() throws JsonProcessingException {
+        return mapper.map(userModel);
+    }
+
+    @Benchmark
+    public UserModel update() {
+        UserModel destination = userModel.copy();
+        mapper.update(changes, destination);
+        return destination;
+    }
+}
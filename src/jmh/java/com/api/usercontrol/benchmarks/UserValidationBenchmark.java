@@ -0,0 +1,91 @@
+package com.api.usercontrol.benchmarks;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserConflictProbe;
+import com.api.usercontrol.repositories.UserRepository;
+import com.api.usercontrol.services.UserCache;
+import com.api.usercontrol.services.UserCountEstimator;
+import com.api.usercontrol.services.UserExistenceFilter;
+import com.api.usercontrol.services.UserMetrics;
+import com.api.usercontrol.services.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserService#validateUser(UserModel, boolean)} against a repository stub answering the
+ * conflict probe from memory, so only the cost of the rules, the stage timers and the probe
+ * bookkeeping is measured. The existence filters are not built, so every user is probed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserValidationBenchmark {
+
+    /**
+     * newUser and registeredUser pass every rule, the others stop at the rule they break.
+     */
+    @Param({"newUser", "registeredUser", "cpfTaken", "invalidEmail"})
+    public String scenario;
+
+    private UserService userService;
+    private UserModel userModel;
+    private boolean isNewUser;
+
+    @Setup
+    public void setUp() {
+        UserControlProperties properties = new UserControlProperties();
+        userService = new UserService(stubRepository("cpfTaken".equals(scenario)), new UserCache(properties),
+                new UserExistenceFilter(null, properties), new UserCountEstimator(null, properties),
+                new UserMetrics(new SimpleMeterRegistry()));
+
+        userModel = UserModel.builder()
+                .cpf("52998224725")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("invalidEmail".equals(scenario) ? "email@fake" : "email@fake.com")
+                .build();
+        isNewUser = !"registeredUser".equals(scenario);
+    }
+
+    @Benchmark
+    public String validateUser() {
+        return userService.validateUser(userModel, isNewUser);
+    }
+
+    //region private methods
+    private static UserRepository stubRepository(boolean cpfTaken) {
+        UserConflictProbe probe = new UserConflictProbe() {
+            @Override
+            public boolean isCpfTaken() {
+                return cpfTaken;
+            }
+
+            @Override
+            public boolean isEmailTaken() {
+                return false;
+            }
+        };
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if ("probeConflicts".equals(method.getName())) {
+                        return probe;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    //endregion
+}
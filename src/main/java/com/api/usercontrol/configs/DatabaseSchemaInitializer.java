@@ -0,0 +1,120 @@
+package com.api.usercontrol.configs;
+
+import com.api.usercontrol.utils.DatabaseProduct;
+import com.api.usercontrol.utils.Tools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Applies the parts of the TB_USER schema that Hibernate cannot generate, once Hibernate has
+ * created or updated the table. Every statement is idempotent so it can run on each startup.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class DatabaseSchemaInitializer {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseSchemaInitializer.class);
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    /**
+     * Unique index over the lower-cased email, created when the optimistic insert is enabled.
+     */
+    public static final String EMAIL_NORMALIZED_UNIQUE_INDEX = "UK_TB_USER_EMAIL_NORMALIZED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserControlProperties properties;
+
+    public DatabaseSchemaInitializer(JdbcTemplate jdbcTemplate, UserControlProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        boolean isPostgreSql = DatabaseProduct.isPostgreSql(jdbcTemplate.getDataSource());
+
+        backfillDerivedColumns();
+        // rows written before the optimistic lock existed start at the first version
+        execute("UPDATE TB_USER SET VERSION = 0 WHERE VERSION IS NULL");
+        if (properties.getRegistration().isOptimisticInsert()) {
+            createEmailNormalizedUniqueIndex();
+        }
+        if (isPostgreSql) {
+            // trigram indexes serve the LIKE '%text%' of the name filters
+            execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            execute("CREATE INDEX IF NOT EXISTS IDX_TB_USER_FIRST_NAME_SEARCH_TRGM"
+                    + " ON TB_USER USING gin (FIRST_NAME_SEARCH gin_trgm_ops)");
+            execute("CREATE INDEX IF NOT EXISTS IDX_TB_USER_LAST_NAME_SEARCH_TRGM"
+                    + " ON TB_USER USING gin (LAST_NAME_SEARCH gin_trgm_ops)");
+        } else {
+            execute("CREATE INDEX IF NOT EXISTS IDX_TB_USER_FIRST_NAME_SEARCH ON TB_USER (FIRST_NAME_SEARCH)");
+            execute("CREATE INDEX IF NOT EXISTS IDX_TB_USER_LAST_NAME_SEARCH ON TB_USER (LAST_NAME_SEARCH)");
+        }
+    }
+
+    //region private methods
+    // the optimistic insert relies on the index to reject a duplicate email, so it must not start without it
+    private void createEmailNormalizedUniqueIndex() {
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + EMAIL_NORMALIZED_UNIQUE_INDEX
+                    + " ON TB_USER (EMAIL_NORMALIZED)");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("The unique index " + EMAIL_NORMALIZED_UNIQUE_INDEX + " could not be"
+                    + " created, look for users sharing an email in different case", e);
+        }
+    }
+
+    // rows written before the derived columns existed are normalized the same way the entity does it
+    private void backfillDerivedColumns() {
+        List<Object[]> batchArgs = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        int[] count = {0};
+        jdbcTemplate.query("SELECT CPF, FIRST_NAME, LAST_NAME, EMAIL FROM TB_USER"
+                + " WHERE FIRST_NAME_SEARCH IS NULL OR LAST_NAME_SEARCH IS NULL"
+                + " OR (EMAIL IS NOT NULL AND EMAIL_NORMALIZED IS NULL)", resultSet -> {
+            String email = resultSet.getString("EMAIL");
+            batchArgs.add(new Object[]{
+                    Tools.normalizeForSearch(resultSet.getString("FIRST_NAME")),
+                    Tools.normalizeForSearch(resultSet.getString("LAST_NAME")),
+                    Objects.isNull(email) ? null : email.toLowerCase(Locale.ROOT),
+                    resultSet.getString("CPF")});
+            if (batchArgs.size() == BACKFILL_BATCH_SIZE) {
+                count[0] += updateDerivedColumns(batchArgs);
+            }
+        });
+        count[0] += updateDerivedColumns(batchArgs);
+
+        if (count[0] > 0) {
+            log.info("User derived columns backfilled -> count:{}", count[0]);
+        }
+    }
+
+    private int updateDerivedColumns(List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE TB_USER SET FIRST_NAME_SEARCH = ?, LAST_NAME_SEARCH = ?, EMAIL_NORMALIZED = ?"
+                + " WHERE CPF = ?", batchArgs);
+        int count = batchArgs.size();
+        batchArgs.clear();
+        return count;
+    }
+
+    private void execute(String sql) {
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            log.warn("Schema statement failed -> sql:{} error:{}", sql, e.getMessage());
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,75 @@
+package com.api.usercontrol.configs;
+
+import com.api.usercontrol.events.UserRepositoryEvent;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserRepository;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.lang.NonNull;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Records every {@link UserRepository} call as a {@link UserRepositoryEvent}. The events of the
+ * service and of the validation stages are recorded where they run; all of them cost a check of
+ * the event settings while no flight recording asks for them.
+ */
+@Configuration
+public class FlightRecorderConfig {
+    // the methods not named after the CPF whose first parameter is one anyway
+    private static final Set<String> CPF_FIRST_METHODS = Set.of("probeConflicts", "updateFields");
+
+    @Bean
+    public static BeanPostProcessor userRepositoryEventPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(
+                            factory -> factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                if (repositoryInformation.getRepositoryInterface() == UserRepository.class) {
+                                    proxyFactory.addAdvice(recordingInterceptor());
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    //region private methods
+    private static MethodInterceptor recordingInterceptor() {
+        return invocation -> {
+            UserRepositoryEvent event = UserRepositoryEvent.begin(invocation.getMethod().getName(),
+                    cpfOf(invocation.getMethod(), invocation.getArguments()));
+            boolean succeeded = false;
+            try {
+                Object result = invocation.proceed();
+                succeeded = true;
+                return result;
+            } finally {
+                event.finish(succeeded);
+            }
+        };
+    }
+
+    private static String cpfOf(Method method, Object[] arguments) {
+        if (arguments.length == 0) {
+            return null;
+        }
+        if (arguments[0] instanceof UserModel) {
+            return ((UserModel) arguments[0]).getCpf();
+        }
+        String name = method.getName();
+        if (arguments[0] instanceof String
+                && (name.endsWith("ById") || name.contains("ByCpf") || CPF_FIRST_METHODS.contains(name))) {
+            return (String) arguments[0];
+        }
+        return null;
+    }
+    //endregion
+}
@@ -0,0 +1,243 @@
+package com.api.usercontrol.configs;
+
+import com.api.usercontrol.mappers.UserMapper;
+import com.api.usercontrol.utils.ServerTiming;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers every request of the servlet stack with a Server-Timing header when
+ * {@code usercontrol.timing.enabled} is set, adding up the time spent waiting for a pooled
+ * connection, in the repositories, in the validation stages, in the MapStruct mapping and in
+ * the Jackson serialization of the response body.
+ * <p>
+ * The data source, the mapper, the repositories and the JSON converter are only wrapped when
+ * enabled, so they run untouched otherwise. The header goes out before the first byte of the
+ * body: the bodies written by the JSON converter are serialized first, so their time is in it,
+ * while the streamed ones (batch, export and bulk delete) only report what ran before they
+ * started writing.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "usercontrol.timing", name = "enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    @Bean
+    public OncePerRequestFilter serverTimingFilter() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                            @NonNull FilterChain filterChain) throws ServletException, IOException {
+                ServerTimingResponse timedResponse = new ServerTimingResponse(response, ServerTiming.start());
+                try {
+                    filterChain.doFilter(request, timedResponse);
+                } finally {
+                    timedResponse.writeHeader();
+                    ServerTiming.stop();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor serverTimingBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(
+                            factory -> factory.addInvocationListener(invocation -> ServerTiming.record(
+                                    ServerTiming.REPOSITORY, invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ConnectionWaitDataSource)) {
+                    return new ConnectionWaitDataSource((DataSource) bean);
+                }
+                if (bean instanceof UserMapper) {
+                    return timedMapper((UserMapper) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer serverTimingConverters() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter
+                        ? new TimedJacksonConverter((MappingJackson2HttpMessageConverter) converter)
+                        : converter);
+            }
+        };
+    }
+
+    //region private methods
+    private static UserMapper timedMapper(UserMapper mapper) {
+        return (UserMapper) Proxy.newProxyInstance(UserMapper.class.getClassLoader(), new Class<?>[]{UserMapper.class},
+                (proxy, method, args) -> {
+                    long startTime = System.nanoTime();
+                    try {
+                        return method.invoke(mapper, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        ServerTiming.record(ServerTiming.MAPPING, System.nanoTime() - startTime);
+                    }
+                });
+    }
+
+    private static class ConnectionWaitDataSource extends DelegatingDataSource {
+        ConnectionWaitDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        @NonNull
+        public Connection getConnection() throws SQLException {
+            long startTime = System.nanoTime();
+            try {
+                return super.getConnection();
+            } finally {
+                ServerTiming.record(ServerTiming.DB_WAIT, System.nanoTime() - startTime);
+            }
+        }
+
+        @Override
+        @NonNull
+        public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+            long startTime = System.nanoTime();
+            try {
+                return super.getConnection(username, password);
+            } finally {
+                ServerTiming.record(ServerTiming.DB_WAIT, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Serializes the body into memory first, so its time is known before the headers go out.
+     */
+    private static class TimedJacksonConverter extends MappingJackson2HttpMessageConverter {
+        TimedJacksonConverter(MappingJackson2HttpMessageConverter converter) {
+            super(converter.getObjectMapper());
+            setSupportedMediaTypes(converter.getSupportedMediaTypes());
+        }
+
+        @Override
+        protected void writeInternal(@NonNull Object object, @Nullable Type type, @NonNull HttpOutputMessage outputMessage)
+                throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            long startTime = System.nanoTime();
+            super.writeInternal(object, type, new HttpOutputMessage() {
+                @Override
+                @NonNull
+                public OutputStream getBody() {
+                    return body;
+                }
+
+                @Override
+                @NonNull
+                public HttpHeaders getHeaders() {
+                    return outputMessage.getHeaders();
+                }
+            });
+            ServerTiming.record(ServerTiming.JSON, System.nanoTime() - startTime);
+            body.writeTo(outputMessage.getBody());
+        }
+    }
+
+    /**
+     * Adds the Server-Timing header right before the response starts to be written.
+     */
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+        private final ServerTiming timing;
+        private boolean headerWritten;
+
+        ServerTimingResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+
+        void writeHeader() {
+            if (!headerWritten && !isCommitted()) {
+                setHeader(ServerTiming.HEADER, timing.header());
+            }
+            headerWritten = true;
+        }
+    }
+    //endregion
+}
@@ -1,21 +1,29 @@
 package com.api.usercontrol.configs;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.service.VendorExtension;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.List;
 
 import static springfox.documentation.builders.PathSelectors.regex;
 
 @Configuration
 @EnableSwagger2
+@Profile("!reactive")
 public class SwaggerConfig {
     @Bean
     public Docket productApi() {
@@ -27,6 +35,23 @@ public class SwaggerConfig {
                 .apiInfo(metaInfo());
     }
 
+    /**
+     * Springfox only understands the Ant path matcher, so the actuator handler mappings, which
+     * parse their paths with PathPatternParser, are hidden from it.
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerMappingsPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    removePathPatternHandlerMappings(bean);
+                }
+                return bean;
+            }
+        };
+    }
+
     private ApiInfo metaInfo() {
         ApiInfo apiInfo = new ApiInfo(
                 "Users API REST",
@@ -41,4 +66,17 @@ public class SwaggerConfig {
 
         return apiInfo;
     }
+
+    @SuppressWarnings("unchecked")
+    private static void removePathPatternHandlerMappings(Object webMvcRequestHandlerProvider) {
+        Field field = ReflectionUtils.findField(webMvcRequestHandlerProvider.getClass(), "handlerMappings");
+        if (field == null) {
+            return;
+        }
+
+        ReflectionUtils.makeAccessible(field);
+        List<RequestMappingInfoHandlerMapping> handlerMappings =
+                (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, webMvcRequestHandlerProvider);
+        handlerMappings.removeIf(handlerMapping -> handlerMapping.getPatternParser() != null);
+    }
 }
@@ -0,0 +1,322 @@
+package com.api.usercontrol.configs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "usercontrol")
+public class UserControlProperties {
+    private final Batch batch = new Batch();
+    private final Export export = new Export();
+    private final Registration registration = new Registration();
+    private final Cache cache = new Cache();
+    private final Bloom bloom = new Bloom();
+    private final Count count = new Count();
+    private final Threads threads = new Threads();
+    private final Lookup lookup = new Lookup();
+    private final Delete delete = new Delete();
+    private final Timing timing = new Timing();
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Registration getRegistration() {
+        return registration;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Bloom getBloom() {
+        return bloom;
+    }
+
+    public Count getCount() {
+        return count;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public Lookup getLookup() {
+        return lookup;
+    }
+
+    public Delete getDelete() {
+        return delete;
+    }
+
+    public Timing getTiming() {
+        return timing;
+    }
+
+    public static class Batch {
+        /**
+         * Number of records validated and inserted per round trip in the batch registration.
+         */
+        private int size = 500;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+
+    public static class Export {
+        /**
+         * Rows fetched per round trip by the cursor behind the full table export.
+         */
+        private int fetchSize = 1000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+    }
+
+    public static class Registration {
+        /**
+         * Insert new users straight away, relying on the primary key and on a unique index over the
+         * lower-cased email instead of querying for conflicts first.
+         */
+        private boolean optimisticInsert = false;
+
+        public boolean isOptimisticInsert() {
+            return optimisticInsert;
+        }
+
+        public void setOptimisticInsert(boolean optimisticInsert) {
+            this.optimisticInsert = optimisticInsert;
+        }
+    }
+
+    public static class Cache {
+        /**
+         * Maximum number of users kept by the lookup cache by CPF.
+         */
+        private long maximumSize = 10000;
+        /**
+         * Time a cached user is served before it is read again from the database.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+        /**
+         * Maximum number of CPFs remembered as not registered.
+         */
+        private long negativeMaximumSize = 10000;
+        /**
+         * Time a CPF is remembered as not registered.
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getNegativeMaximumSize() {
+            return negativeMaximumSize;
+        }
+
+        public void setNegativeMaximumSize(long negativeMaximumSize) {
+            this.negativeMaximumSize = negativeMaximumSize;
+        }
+
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+    }
+
+    public static class Bloom {
+        /**
+         * Skip the conflict queries for the CPFs and emails the Bloom filters know are not registered.
+         * Only for a single instance, see {@link com.api.usercontrol.services.UserExistenceFilterLock}.
+         */
+        private boolean enabled = false;
+        /**
+         * Minimum number of users the filters are sized for; twice the users registered when larger.
+         */
+        private long expectedInsertions = 1000000;
+        /**
+         * Probability of a "might be registered" answer for a CPF or email that is not.
+         */
+        private double falsePositiveRate = 0.01;
+        /**
+         * Time between rebuilds, which forget the deleted users.
+         */
+        private Duration rebuildInterval = Duration.ofHours(1);
+        /**
+         * Number of CPF ranges read at the same time while building the filters.
+         */
+        private int scanParallelism = 2;
+        /**
+         * Time between the checks that this instance still holds the lock that keeps the filters to it.
+         */
+        private Duration lockCheckInterval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedInsertions() {
+            return expectedInsertions;
+        }
+
+        public void setExpectedInsertions(long expectedInsertions) {
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+
+        public int getScanParallelism() {
+            return scanParallelism;
+        }
+
+        public void setScanParallelism(int scanParallelism) {
+            this.scanParallelism = scanParallelism;
+        }
+
+        public Duration getLockCheckInterval() {
+            return lockCheckInterval;
+        }
+
+        public void setLockCheckInterval(Duration lockCheckInterval) {
+            this.lockCheckInterval = lockCheckInterval;
+        }
+    }
+
+    public static class Count {
+        /**
+         * Time the exact user count is reused as the estimated total where the database keeps no estimate.
+         */
+        private Duration exactTtl = Duration.ofMinutes(1);
+
+        public Duration getExactTtl() {
+            return exactTtl;
+        }
+
+        public void setExactTtl(Duration exactTtl) {
+            this.exactTtl = exactTtl;
+        }
+    }
+
+    public static class Threads {
+        /**
+         * Serve every request of the servlet stack on a new virtual thread instead of on the Tomcat
+         * worker pool. Needs Java 21 or newer.
+         */
+        private boolean virtual = false;
+
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+    }
+
+    public static class Lookup {
+        /**
+         * Most CPFs accepted by a single lookup request.
+         */
+        private int maxSize = 10000;
+
+        /**
+         * CPFs bound per IN query of a lookup, under the bind parameter limit of the database.
+         */
+        private int chunkSize = 1000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Delete {
+        /**
+         * Users deleted per statement and transaction by the bulk delete.
+         */
+        private int chunkSize = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Timing {
+        /**
+         * Answer every request of the servlet stack with a Server-Timing header breaking down where
+         * its time went.
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
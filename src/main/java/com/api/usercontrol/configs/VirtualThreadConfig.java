@@ -0,0 +1,50 @@
+package com.api.usercontrol.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request of the servlet stack on its own virtual thread when
+ * {@code usercontrol.threads.virtual} is set. A request waiting for a database connection then
+ * parks its virtual thread instead of holding a Tomcat worker, so the pool size alone bounds the
+ * database work.
+ * <p>
+ * The executor is looked up reflectively because the code is still compiled for Java 11.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "usercontrol.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Requests served on virtual threads -> java:{}", Runtime.version());
+            return executor;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("usercontrol.threads.virtual needs Java 21 or newer, running on "
+                    + Runtime.version(), e);
+        }
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(
+            ExecutorService virtualThreadExecutor) {
+        return factory -> factory.addProtocolHandlerCustomizers(
+                protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor));
+    }
+}
@@ -0,0 +1,102 @@
+package com.api.usercontrol.controlllers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An If-Match header read as RFC 9110 does: "*", or a comma separated list of entity tags that
+ * are compared strongly, so a weak one never matches. The ETags of the users are strong, their
+ * version quoted, hence a list is kept as the versions it names.
+ */
+final class IfMatch {
+    private static final IfMatch ABSENT = new IfMatch(false, false, Collections.emptyList());
+    private static final IfMatch ANY = new IfMatch(true, true, Collections.emptyList());
+
+    private final boolean present;
+    private final boolean any;
+    private final List<Long> versions;
+
+    private IfMatch(boolean present, boolean any, List<Long> versions) {
+        this.present = present;
+        this.any = any;
+        this.versions = versions;
+    }
+
+    static IfMatch parse(String header) {
+        if (Objects.isNull(header)) {
+            return ABSENT;
+        }
+        if (header.trim().equals("*")) {
+            return ANY;
+        }
+
+        List<Long> versions = new ArrayList<>(1);
+        int i = 0;
+        while (i < header.length()) {
+            char c = header.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+
+            boolean weak = header.startsWith("W/", i);
+            int opening = weak ? i + 2 : i;
+            if (opening >= header.length() || header.charAt(opening) != '"') {
+                // not an entity tag: skip it up to the next one
+                int comma = header.indexOf(',', i);
+                i = comma < 0 ? header.length() : comma + 1;
+                continue;
+            }
+            int closing = header.indexOf('"', opening + 1);
+            if (closing < 0) {
+                break;
+            }
+            if (!weak) {
+                version(header.substring(opening + 1, closing), versions);
+            }
+            i = closing + 1;
+        }
+        return new IfMatch(true, false, versions);
+    }
+
+    /**
+     * Whether the header was sent.
+     */
+    boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * Whether the write must find one of the versions listed, that is, the header is a list. With
+     * no version listed, as when every tag is weak, nothing matches.
+     */
+    boolean isConditional() {
+        return present && !any;
+    }
+
+    /**
+     * The versions named by the strong tags listed, empty without a list.
+     */
+    List<Long> versions() {
+        return versions;
+    }
+
+    /**
+     * Whether an existing user with the version meets the precondition.
+     */
+    boolean matches(Long version) {
+        return !isConditional() || versions.contains(version);
+    }
+
+    //region private methods
+    private static void version(String opaqueTag, List<Long> versions) {
+        try {
+            versions.add(Long.parseLong(opaqueTag));
+        } catch (NumberFormatException e) {
+            // no user has it
+        }
+    }
+    //endregion
+}
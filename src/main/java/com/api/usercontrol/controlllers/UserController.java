@@ -1,53 +1,104 @@
 package com.api.usercontrol.controlllers;
 
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.dto.UserBatchResultDto;
+import com.api.usercontrol.dto.UserCursor;
 import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.dto.UserField;
+import com.api.usercontrol.dto.UserUpdateResultDto;
 import com.api.usercontrol.mappers.UserMapper;
 import com.api.usercontrol.models.UserModel;
 import com.api.usercontrol.services.UserService;
 import com.api.usercontrol.utils.Tools;
+import com.api.usercontrol.utils.UserExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.hibernate.validator.internal.engine.ValidatorFactoryImpl;
 import org.hibernate.validator.internal.engine.ValidatorImpl;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
 import javax.validation.Validation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = HttpHeaders.ETAG)
 @RestController
+@Profile("!reactive")
 @RequestMapping(value = "/api")
 @Api(value = "API REST Users")
 public class UserController {
     final UserService userService;
     final UserMapper mapper;
-    private final static String LEYEND_USER_NOT_FOUND = "User not found";
-    private final static String LEYEND_USER_DELETED = "User has been deleted";
+    final ObjectMapper objectMapper;
+    final UserControlProperties properties;
+    final static String LEYEND_USER_NOT_FOUND = "User not found";
+    final static String LEYEND_USER_DELETED = "User has been deleted";
+    private final static String LEYEND_BATCH_NOT_AN_ARRAY = "The request body must be a JSON array of users";
+    private final static String LEYEND_BATCH_MALFORMED = "The request body is not a complete JSON array, "
+            + "the users from this index on were not read";
+    private final static String LEYEND_BATCH_NOT_AN_USER = "Not an user object";
+    private final static String LEYEND_INVALID_CURSOR = "Invalid cursor or sort key, sort by cpf, firstName or lastName";
+    private final static int MAX_CURSOR_PAGE_SIZE = 2000;
+    private final static String LEYEND_EXPORT_FORMAT_NOT_SUPPORTED = "Export format not supported, use ndjson or csv";
+    final static String LEYEND_USER_MODIFIED = "User has been modified, fetch it again";
+    private final static String PREFER = "Prefer";
+    private final static String PREFER_RETURN_MINIMAL = "return=minimal";
+    private final static String LEYEND_INVALID_COUNT = "Invalid count, use exact, estimated or none";
+    private final static String LEYEND_INVALID_FIELDS =
+            "Invalid fields, use cpf, firstName, lastName, dateOfBirth, email or registrationDate";
+    private final static String LEYEND_LOOKUP_TOO_LARGE = "Too many CPFs, look up at most %d at a time";
+    private final static String LEYEND_DELETE_NOT_AN_ARRAY = "The request body must be a JSON array of CPF strings";
+    private final static String LEYEND_DELETE_EMPTY_FILTER = "The search text must not be empty";
 
-    public UserController(UserService userService, UserMapper mapper) {
+    public UserController(UserService userService, UserMapper mapper, ObjectMapper objectMapper,
+                          UserControlProperties properties) {
         this.userService = userService;
         this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
     }
 
     @RequestMapping(method = RequestMethod.POST,
@@ -58,13 +109,16 @@ public class UserController {
     @ApiOperation(value = "Add a user record")
 
     public ResponseEntity<Object> saveUser(@RequestBody @Valid UserDto userDto) {
-        UserModel userModel = UserModel.builder()
-                .cpf(userDto.getCpf())
-                .firstName(userDto.getFirstName())
-                .lastName(userDto.getLastName())
-                .dateOfBirth(userDto.getDateOfBirth())
-                .email(userDto.getEmailString())
-                .build();
+        UserModel userModel = buildNewUser(userDto);
+
+        if (properties.getRegistration().isOptimisticInsert()) {
+            userModel.setRegistrationDate(Tools.getLocalDateTime());
+            String insertLeyend = userService.insert(userModel);
+            if (!insertLeyend.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(insertLeyend);
+            }
+            return withETag(ResponseEntity.status(HttpStatus.CREATED), eTag(userModel)).body(userModel);
+        }
 
         String validateNewUserLeyend = userService.validateUser(userModel, true);
 
@@ -72,10 +126,81 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(validateNewUserLeyend);
         } else {
             userModel.setRegistrationDate(Tools.getLocalDateTime());
-            return ResponseEntity.status(HttpStatus.CREATED).body(userService.save(userModel));
+            UserModel userModelSaved = userService.save(userModel);
+            return withETag(ResponseEntity.status(HttpStatus.CREATED), eTag(userModelSaved)).body(userModelSaved);
         }
     }
 
+    @PostMapping(value = "/user/batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation(value = "Add a list of user records, returning the result of each one in the same order")
+    public void saveUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int batchSize = properties.getBatch().getSize();
+        ValidatorFactoryImpl validatorFactoryImp = (ValidatorFactoryImpl) Validation.buildDefaultValidatorFactory();
+        ValidatorImpl validator = (ValidatorImpl) validatorFactoryImp.getValidator();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_BATCH_NOT_AN_ARRAY);
+                return;
+            }
+
+            // the first chunk is read before the response is committed, so a malformed one is still a 400
+            List<JsonNode> elementList = new ArrayList<>(batchSize);
+            boolean more;
+            try {
+                more = readBatchChunk(parser, elementList, batchSize);
+            } catch (JsonProcessingException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_BATCH_MALFORMED);
+                return;
+            }
+
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                generator.writeStartArray();
+
+                // only one chunk of users and results is held in memory at any time
+                int index = 0;
+                while (true) {
+                    writeBatchResults(generator, saveChunk(elementList, index, validator));
+                    index += elementList.size();
+                    elementList.clear();
+                    if (!more) {
+                        break;
+                    }
+                    try {
+                        more = readBatchChunk(parser, elementList, batchSize);
+                    } catch (JsonProcessingException e) {
+                        // the status is already sent, so the results written stand and the rest is reported unsaved
+                        writeBatchResults(generator,
+                                Collections.singletonList(UserBatchResultDto.invalid(index, LEYEND_BATCH_MALFORMED)));
+                        break;
+                    }
+                }
+
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    @PostMapping(value = "/user/lookup",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation(value = "Return the users with the given CPFs, and the CPFs that are not registered")
+    public ResponseEntity<Object> lookupUsers(@RequestBody List<String> cpfs) {
+        UserControlProperties.Lookup lookup = properties.getLookup();
+        if (cpfs.size() > lookup.getMaxSize()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(String.format(LEYEND_LOOKUP_TOO_LARGE, lookup.getMaxSize()));
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(userService.findByCpfs(cpfs, lookup.getChunkSize()));
+    }
+
     @GetMapping("/user")
     @ApiOperation(value = "Return a list with all users per page")
     public ResponseEntity<Page<UserModel>> getAllUsers(@PageableDefault(page = 0, size = 10, sort = "cpf",
@@ -83,19 +208,98 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(userService.findAll(pageable));
     }
 
+    @GetMapping(value = "/user", params = {"count", "!fields", "!after"})
+    @ApiOperation(value = "Return a page of users with an exact total (count=exact), an approximate one (count=estimated)"
+            + " or none at all, telling only whether there is a next page (count=none)")
+    public ResponseEntity<Object> getAllUsersCounting(@RequestParam(value = "count") String count,
+                                                      @PageableDefault(page = 0, size = 10, sort = "cpf",
+                                                              direction = Sort.Direction.ASC) Pageable pageable) {
+        switch (count.toLowerCase(Locale.ROOT)) {
+            case "exact":
+                return ResponseEntity.status(HttpStatus.OK).body(userService.findAll(pageable));
+            case "estimated":
+                return ResponseEntity.status(HttpStatus.OK).body(userService.findAllEstimated(pageable));
+            case "none":
+                return ResponseEntity.status(HttpStatus.OK).body(userService.findSlice(pageable));
+            default:
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(LEYEND_INVALID_COUNT);
+        }
+    }
+
+    @GetMapping(value = "/user", params = {"fields", "!after"})
+    @ApiOperation(value = "Return a page of users with only the given comma separated fields")
+    public ResponseEntity<Object> getAllUserFields(@RequestParam(value = "fields") String fields,
+                                                   @PageableDefault(page = 0, size = 10, sort = "cpf",
+                                                           direction = Sort.Direction.ASC) Pageable pageable) {
+        Optional<List<UserField>> userFieldsOptional = UserField.parse(fields);
+        if (!userFieldsOptional.isPresent()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(LEYEND_INVALID_FIELDS);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(userService.findAllFields(userFieldsOptional.get(), pageable));
+    }
+
+    @GetMapping(value = "/user", params = "after")
+    @ApiOperation(value = "Return a page of users after the given cursor (empty for the first one) without counting them")
+    public ResponseEntity<Object> getUsersAfter(@RequestParam(value = "after") String after,
+                                                @RequestParam(value = "size", defaultValue = "10") int size,
+                                                @RequestParam(value = "sort", defaultValue = "cpf") String sort) {
+        Optional<UserCursor> cursorOptional = after.isEmpty()
+                ? UserCursor.SortKey.of(sort).map(UserCursor::start)
+                : UserCursor.decode(after);
+        if (!cursorOptional.isPresent()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(LEYEND_INVALID_CURSOR);
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        return ResponseEntity.status(HttpStatus.OK).body(userService.findPageAfter(cursorOptional.get(), pageSize));
+    }
+
+    @GetMapping("/user/export")
+    @ApiOperation(value = "Stream all users ordered by CPF as NDJSON (default) or CSV")
+    public void exportUsers(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        Optional<UserExportFormat> exportFormatOptional = UserExportFormat.of(format);
+        if (!exportFormatOptional.isPresent()) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_EXPORT_FORMAT_NOT_SUPPORTED);
+            return;
+        }
+
+        UserExportFormat exportFormat = exportFormatOptional.get();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (UserExportFormat.UserWriter writer = exportFormat.open(response.getOutputStream(), objectMapper)) {
+            userService.forEachUser(properties.getExport().getFetchSize(), userModel -> {
+                try {
+                    writer.write(userModel);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     @GetMapping("/user/{cpf}")
-    @ApiOperation(value = "Return a unique user giving his CPF")
-    public ResponseEntity<Object> getUser(@PathVariable(value = "cpf") String cpf) {
+    @ApiOperation(value = "Return a unique user giving his CPF, or 304 when it still matches the If-None-Match ETag")
+    public ResponseEntity<Object> getUser(@PathVariable(value = "cpf") String cpf,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Optional<UserModel> userModelOptional = userService.findByCpf(cpf);
         if (!userModelOptional.isPresent()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
         }
 
-        return ResponseEntity.status(HttpStatus.OK).body(userModelOptional.get());
+        UserModel userModel = userModelOptional.get();
+        String eTag = eTag(userModel);
+        if (eTagMatches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        return withETag(ResponseEntity.status(HttpStatus.OK), eTag).body(userModel);
     }
 
     @RequestMapping(value = {"/user/filter"}, method = RequestMethod.GET, params = "firstname")
-    @ApiOperation(value = "Returns a list of users where their firstName matches the search text (case sensitive)")
+    @ApiOperation(value = "Returns a list of users where their firstName matches the search text (case and accent insensitive)")
     public ResponseEntity<List<UserModel>> getUserbyFirstName(
             @RequestParam(value = "firstname", required = true) String firstName) {
         List<UserModel> userModelList = userService.findByFirstNameContains(firstName);
@@ -103,8 +307,22 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(userModelList);
     }
 
+    @RequestMapping(value = {"/user/filter"}, method = RequestMethod.GET, params = {"firstname", "fields"})
+    @ApiOperation(value = "Returns the given comma separated fields of the users where their firstName matches the search text")
+    public ResponseEntity<Object> getUserFieldsByFirstName(
+            @RequestParam(value = "firstname", required = true) String firstName,
+            @RequestParam(value = "fields") String fields) {
+        Optional<List<UserField>> userFieldsOptional = UserField.parse(fields);
+        if (!userFieldsOptional.isPresent()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(LEYEND_INVALID_FIELDS);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(userService.findFieldsByFirstNameContains(userFieldsOptional.get(), firstName));
+    }
+
     @RequestMapping(value = {"/user/filter"}, method = RequestMethod.GET, params = "lastname")
-    @ApiOperation(value = "Returns a list of users where their lastName matches the search text (case sensitive)")
+    @ApiOperation(value = "Returns a list of users where their lastName matches the search text (case and accent insensitive)")
     public ResponseEntity<List<UserModel>> getUserbyLastName(
             @RequestParam(value = "lastname", required = true) String lastName) {
         List<UserModel> userModelList = userService.findByLastNameContains(lastName);
@@ -112,48 +330,406 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(userModelList);
     }
 
+    @RequestMapping(value = {"/user/filter"}, method = RequestMethod.GET, params = {"lastname", "fields"})
+    @ApiOperation(value = "Returns the given comma separated fields of the users where their lastName matches the search text")
+    public ResponseEntity<Object> getUserFieldsByLastName(
+            @RequestParam(value = "lastname", required = true) String lastName,
+            @RequestParam(value = "fields") String fields) {
+        Optional<List<UserField>> userFieldsOptional = UserField.parse(fields);
+        if (!userFieldsOptional.isPresent()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(LEYEND_INVALID_FIELDS);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(userService.findFieldsByLastNameContains(userFieldsOptional.get(), lastName));
+    }
+
+    @DeleteMapping(value = "/user",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation(value = "Delete the users of a list of CPFs in chunks, returning the users deleted by each one")
+    public void deleteUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int chunkSize = properties.getDelete().getChunkSize();
+
+        // the whole list is read before the first chunk is deleted, so a malformed one deletes nothing
+        List<String> cpfList;
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            cpfList = readCpfs(parser);
+        } catch (JsonProcessingException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_DELETE_NOT_AN_ARRAY);
+            return;
+        }
+
+        Iterator<String> cpfIterator = cpfList.iterator();
+        deleteInChunks(response, afterCpf -> {
+            List<String> cpfs = new ArrayList<>(chunkSize);
+            while (cpfs.size() < chunkSize && cpfIterator.hasNext()) {
+                cpfs.add(cpfIterator.next());
+            }
+            return cpfs;
+        }, userService::deleteAll);
+    }
+
+    @DeleteMapping(value = "/user", params = "firstname", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Delete the users whose firstName matches the search text in chunks, returning the users deleted by each one")
+    public void deleteUsersByFirstName(@RequestParam(value = "firstname") String firstName,
+                                       HttpServletResponse response) throws IOException {
+        if (firstName.isBlank()) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_DELETE_EMPTY_FILTER);
+            return;
+        }
+
+        int chunkSize = properties.getDelete().getChunkSize();
+        deleteInChunks(response, afterCpf -> userService.findCpfsByFirstNameContainsAfter(firstName, afterCpf, chunkSize),
+                cpfs -> userService.deleteAllByFirstNameContains(cpfs, firstName));
+    }
+
+    @DeleteMapping(value = "/user", params = "lastname", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Delete the users whose lastName matches the search text in chunks, returning the users deleted by each one")
+    public void deleteUsersByLastName(@RequestParam(value = "lastname") String lastName,
+                                      HttpServletResponse response) throws IOException {
+        if (lastName.isBlank()) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), LEYEND_DELETE_EMPTY_FILTER);
+            return;
+        }
+
+        int chunkSize = properties.getDelete().getChunkSize();
+        deleteInChunks(response, afterCpf -> userService.findCpfsByLastNameContainsAfter(lastName, afterCpf, chunkSize),
+                cpfs -> userService.deleteAllByLastNameContains(cpfs, lastName));
+    }
+
     @DeleteMapping("/user/{cpf}")
-    @ApiOperation(value = "Delete a user giving his CPF")
-    public ResponseEntity<Object> deleteUser(@PathVariable(value = "cpf") String cpf) {
-        Optional<UserModel> userModelOptional = userService.findByCpf(cpf);
-        if (!userModelOptional.isPresent()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
+    @ApiOperation(value = "Delete a user giving his CPF with a single statement, only when it matches the If-Match ETag if given")
+    public ResponseEntity<Object> deleteUser(@PathVariable(value = "cpf") String cpf,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        IfMatch precondition = IfMatch.parse(ifMatch);
+        Long expectedVersion = null;
+        if (precondition.isConditional()) {
+            Optional<Long> versionOptional = expectedVersion(cpf, precondition);
+            if (!versionOptional.isPresent()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(LEYEND_USER_MODIFIED);
+            }
+            expectedVersion = versionOptional.get();
         }
 
-        userService.delete(userModelOptional.get());
+        if (userService.deleteByCpf(cpf, expectedVersion) == 0) {
+            // only a versioned delete needs to tell a missing user from a modified one
+            if (Objects.nonNull(expectedVersion) && userService.existsByCpf(cpf)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(LEYEND_USER_MODIFIED);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
+        }
 
         return ResponseEntity.status(HttpStatus.OK).body(LEYEND_USER_DELETED);
     }
 
     @PutMapping("/user/{cpf}")
-    @ApiOperation(value = "Modify one or several user fields giving their CPF")
+    @ApiOperation(value = "Modify one or several user fields giving their CPF, only when it matches the If-Match ETag if given")
     public ResponseEntity<Object> updateUser(@PathVariable(value = "cpf") String cpf,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                              @RequestBody UserDto userDto) {
-        Optional<UserModel> userModelOptional = userService.findByCpf(cpf);
-        if (!userModelOptional.isPresent()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
+        UserUpdateResultDto result;
+        try {
+            result = userService.update(cpf, IfMatch.parse(ifMatch)::matches,
+                    userModel -> mapper.update(userDto, userModel), this::constraintErrors);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return modifiedConcurrently(ifMatch);
         }
 
-        UserModel userModel = userModelOptional.get();
-        mapper.update(userDto, userModel);
+        switch (result.getStatus()) {
+            case NOT_FOUND:
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
+            case MODIFIED:
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(LEYEND_USER_MODIFIED);
+            case CONFLICT:
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Objects.nonNull(result.getErrors()) ? result.getErrors() : result.getReason());
+            default:
+                return withETag(ResponseEntity.status(HttpStatus.OK), eTag(result.getUser())).body(result.getUser());
+        }
+    }
+
+    @PutMapping(value = "/user/{cpf}", headers = PREFER)
+    @ApiOperation(value = "With Prefer: return=minimal, modify the user fields sent with a single statement, answering 204 without reading the user back")
+    public ResponseEntity<Object> updateUserFields(@PathVariable(value = "cpf") String cpf,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @RequestHeader(value = PREFER) String prefer,
+                                                   @RequestBody UserDto userDto) {
+        if (!prefersMinimalReturn(prefer)) {
+            return updateUser(cpf, ifMatch, userDto);
+        }
+
+        IfMatch precondition = IfMatch.parse(ifMatch);
+        Long expectedVersion = null;
+        if (precondition.isConditional()) {
+            Optional<Long> versionOptional = expectedVersion(cpf, precondition);
+            if (!versionOptional.isPresent()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(LEYEND_USER_MODIFIED);
+            }
+            expectedVersion = versionOptional.get();
+        }
 
-        UserDto userDtoToVerify = UserDto.builder().build(userModel);
         ValidatorFactoryImpl validatorFactoryImp = (ValidatorFactoryImpl) Validation.buildDefaultValidatorFactory();
         ValidatorImpl validator = (ValidatorImpl) validatorFactoryImp.getValidator();
 
-        Set<ConstraintViolation<UserDto>> constraintViolations = validator.validate(userDtoToVerify);
-        if (!constraintViolations.isEmpty()) {
-            List<String> errors = constraintViolations.stream().map(violation -> violation.getPropertyPath() + ": " + violation.getMessage()).collect(Collectors.toList());
+        List<String> errors = changedProperties(userDto).stream()
+                .flatMap(property -> validator.validateProperty(userDto, property).stream())
+                .map(this::describe)
+                .collect(Collectors.toList());
+        if (!errors.isEmpty()) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
         }
 
-        String validateModifiedUserLeyend = userService.validateUser(userModel, false);
-        if (!validateModifiedUserLeyend.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(validateModifiedUserLeyend);
-        } else {
-            return ResponseEntity.status(HttpStatus.OK).body(userService.save(userModel));
+        UserUpdateResultDto result = userService.updateFields(cpf, userDto, expectedVersion);
+        switch (result.getStatus()) {
+            case NOT_FOUND:
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(LEYEND_USER_NOT_FOUND);
+            case MODIFIED:
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(LEYEND_USER_MODIFIED);
+            case CONFLICT:
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result.getReason());
+            default:
+                return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                        .eTag("\"" + result.getVersion() + "\"")
+                        .header("Preference-Applied", PREFER_RETURN_MINIMAL)
+                        .build();
         }
     }
-}
 
+    //region private methods
+    // RFC 7240: a comma separated list of preferences, each a token, an optional value and parameters after ';'
+    private static boolean prefersMinimalReturn(String prefer) {
+        for (String preference : prefer.split(",")) {
+            String[] tokenAndValue = preference.split(";", 2)[0].split("=", 2);
+            if (tokenAndValue.length == 2 && tokenAndValue[0].trim().equalsIgnoreCase("return")
+                    && tokenAndValue[1].trim().replace("\"", "").equalsIgnoreCase("minimal")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the fields a partial update changes: the ones sent, the email even when sent as null
+    private List<String> changedProperties(UserDto userDto) {
+        List<String> properties = new ArrayList<>(4);
+        if (Objects.nonNull(userDto.getFirstName())) {
+            properties.add("firstName");
+        }
+        if (Objects.nonNull(userDto.getLastName())) {
+            properties.add("lastName");
+        }
+        if (Objects.nonNull(userDto.getDateOfBirth())) {
+            properties.add("dateOfBirth");
+        }
+        if (Objects.nonNull(userDto.getEmail()) && userDto.getEmail().isPresent()) {
+            properties.add("email");
+        }
+        return properties;
+    }
+
+    // the version a single statement must find: the one listed, or among several the current one when listed
+    private Optional<Long> expectedVersion(String cpf, IfMatch precondition) {
+        List<Long> versions = precondition.versions();
+        if (versions.size() <= 1) {
+            return versions.stream().findFirst();
+        }
+        return userService.findByCpf(cpf).map(UserModel::getVersion).filter(precondition::matches);
+    }
+
+    // strong ETag of the user, its version
+    static String eTag(UserModel userModel) {
+        if (Objects.isNull(userModel) || Objects.isNull(userModel.getVersion())) {
+            return null;
+        }
+        return "\"" + userModel.getVersion() + "\"";
+    }
+
+    private ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, String eTag) {
+        return Objects.isNull(eTag) ? builder : builder.eTag(eTag);
+    }
+
+    // RFC 7232: If-None-Match compares weakly and accepts a list or "*"; If-Match is read by IfMatch
+    static boolean eTagMatches(String header, String eTag) {
+        if (Objects.isNull(header) || Objects.isNull(eTag)) {
+            return false;
+        }
+
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the user changed between reading and writing it
+    private ResponseEntity<Object> modifiedConcurrently(String ifMatch) {
+        HttpStatus status = Objects.isNull(ifMatch) ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED;
+        return ResponseEntity.status(status).body(LEYEND_USER_MODIFIED);
+    }
+
+    private UserModel buildNewUser(UserDto userDto) {
+        return UserModel.builder()
+                .cpf(userDto.getCpf())
+                .firstName(userDto.getFirstName())
+                .lastName(userDto.getLastName())
+                .dateOfBirth(userDto.getDateOfBirth())
+                .email(userDto.getEmailString())
+                .build();
+    }
+
+    // the constraints of the request body broken by a user changed with a full update
+    private List<String> constraintErrors(UserModel userModel) {
+        UserDto userDtoToVerify = UserDto.builder().build(userModel);
+        ValidatorFactoryImpl validatorFactoryImp = (ValidatorFactoryImpl) Validation.buildDefaultValidatorFactory();
+        ValidatorImpl validator = (ValidatorImpl) validatorFactoryImp.getValidator();
+
+        return validator.validate(userDtoToVerify).stream().map(this::describe).collect(Collectors.toList());
+    }
+
+    private String describe(ConstraintViolation<UserDto> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    /**
+     * Reads the next elements of the batch array into the list until it holds a chunk, returning
+     * whether there may be more. Fails when the body ends, or goes on, without closing the array.
+     */
+    private boolean readBatchChunk(JsonParser parser, List<JsonNode> elementList, int chunkSize) throws IOException {
+        while (elementList.size() < chunkSize) {
+            JsonToken token = parser.nextToken();
+            if (Objects.isNull(token)) {
+                throw new JsonParseException(parser, "Unexpected end of the array");
+            }
+            if (token == JsonToken.END_ARRAY) {
+                if (Objects.nonNull(parser.nextToken())) {
+                    throw new JsonParseException(parser, "Unexpected content after the array");
+                }
+                return false;
+            }
+            elementList.add(objectMapper.readTree(parser));
+        }
+        return true;
+    }
+
+    private List<UserBatchResultDto> saveChunk(List<JsonNode> elementList, int firstIndex, ValidatorImpl validator) {
+        List<UserBatchResultDto> resultList = new ArrayList<>(elementList.size());
+        List<UserModel> userModelList = new ArrayList<>(elementList.size());
+        List<Integer> userModelIndexList = new ArrayList<>(elementList.size());
+
+        for (int i = 0; i < elementList.size(); i++) {
+            JsonNode element = elementList.get(i);
+            if (!element.isObject()) {
+                resultList.add(UserBatchResultDto.invalid(firstIndex + i, LEYEND_BATCH_NOT_AN_USER));
+                continue;
+            }
+            UserDto userDto;
+            try {
+                userDto = objectMapper.treeToValue(element, UserDto.class);
+            } catch (JsonProcessingException e) {
+                resultList.add(UserBatchResultDto.invalid(firstIndex + i, e.getOriginalMessage()));
+                continue;
+            }
+            Set<ConstraintViolation<UserDto>> constraintViolations = validator.validate(userDto);
+            if (!constraintViolations.isEmpty()) {
+                String reason = constraintViolations.stream().map(this::describe).collect(Collectors.joining(", "));
+                resultList.add(UserBatchResultDto.conflict(firstIndex + i, userDto.getCpf(), reason));
+            } else {
+                UserModel userModel = buildNewUser(userDto);
+                userModel.setRegistrationDate(Tools.getLocalDateTime());
+                userModelList.add(userModel);
+                userModelIndexList.add(i);
+                resultList.add(null);
+            }
+        }
+
+        if (!userModelList.isEmpty()) {
+            List<String> leyendList = userService.saveAll(userModelList);
+            for (int i = 0; i < leyendList.size(); i++) {
+                int index = userModelIndexList.get(i);
+                String cpf = userModelList.get(i).getCpf();
+                String leyend = leyendList.get(i);
+                resultList.set(index, leyend.isEmpty()
+                        ? UserBatchResultDto.created(firstIndex + index, cpf)
+                        : UserBatchResultDto.conflict(firstIndex + index, cpf, leyend));
+            }
+        }
 
+        return resultList;
+    }
+
+    // a top-level array whose elements are all strings, with nothing after it
+    private List<String> readCpfs(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Not an array");
+        }
+
+        List<String> cpfList = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_STRING) {
+                throw new JsonParseException(parser, "Not a CPF");
+            }
+            cpfList.add(parser.getText());
+        }
+        if (Objects.nonNull(parser.nextToken())) {
+            throw new JsonParseException(parser, "Unexpected content after the array");
+        }
+        return cpfList;
+    }
+
+    /**
+     * Deletes the chunks of CPFs handed out by the source until it returns an empty one, writing
+     * the users deleted by each chunk as it commits and the total at the end:
+     * {"chunks":[{"chunk":0,"cpfs":1000,"deleted":998}, ...],"deleted":998}
+     *
+     * @param delete deletes a chunk, returning the users deleted
+     */
+    private void deleteInChunks(HttpServletResponse response, CpfChunkSource source,
+                                ToIntFunction<List<String>> delete) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("chunks");
+
+            long totalDeleted = 0;
+            String afterCpf = null;
+            List<String> cpfs;
+            for (int chunk = 0; !(cpfs = source.next(afterCpf)).isEmpty(); chunk++) {
+                int deleted = delete.applyAsInt(cpfs);
+                totalDeleted += deleted;
+                afterCpf = cpfs.get(cpfs.size() - 1);
+
+                generator.writeStartObject();
+                generator.writeNumberField("chunk", chunk);
+                generator.writeNumberField("cpfs", cpfs.size());
+                generator.writeNumberField("deleted", deleted);
+                generator.writeEndObject();
+                generator.flush();
+            }
+
+            generator.writeEndArray();
+            generator.writeNumberField("deleted", totalDeleted);
+            generator.writeEndObject();
+        }
+    }
+
+    // the next chunk of CPFs to delete, empty once there are no more
+    private interface CpfChunkSource {
+        List<String> next(String afterCpf) throws IOException;
+    }
+
+    private void writeBatchResults(JsonGenerator generator, List<UserBatchResultDto> resultList) throws IOException {
+        for (UserBatchResultDto result : resultList) {
+            generator.writeObject(result);
+        }
+        generator.flush();
+    }
+    //endregion
+}
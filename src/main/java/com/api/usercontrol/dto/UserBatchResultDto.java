@@ -0,0 +1,49 @@
+package com.api.usercontrol.dto;
+
+public class UserBatchResultDto {
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID
+    }
+
+    private final int index;
+    private final String cpf;
+    private final Status status;
+    private final String reason;
+
+    private UserBatchResultDto(int index, String cpf, Status status, String reason) {
+        this.index = index;
+        this.cpf = cpf;
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public static UserBatchResultDto created(int index, String cpf) {
+        return new UserBatchResultDto(index, cpf, Status.CREATED, null);
+    }
+
+    public static UserBatchResultDto conflict(int index, String cpf, String reason) {
+        return new UserBatchResultDto(index, cpf, Status.CONFLICT, reason);
+    }
+
+    public static UserBatchResultDto invalid(int index, String reason) {
+        return new UserBatchResultDto(index, null, Status.INVALID, reason);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getCpf() {
+        return cpf;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,112 @@
+package com.api.usercontrol.dto;
+
+import com.api.usercontrol.models.UserModel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Position of the last user returned by a keyset page. It is handed to clients as an opaque
+ * token holding the sort key, the value of that key and the CPF used as unique tiebreaker.
+ */
+public class UserCursor {
+    public enum SortKey {
+        CPF("cpf"),
+        FIRST_NAME("firstName"),
+        LAST_NAME("lastName");
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public String valueOf(UserModel userModel) {
+            switch (this) {
+                case FIRST_NAME:
+                    return userModel.getFirstName();
+                case LAST_NAME:
+                    return userModel.getLastName();
+                default:
+                    return userModel.getCpf();
+            }
+        }
+
+        public static Optional<SortKey> of(String property) {
+            for (SortKey sortKey : values()) {
+                if (sortKey.property.equalsIgnoreCase(property)) {
+                    return Optional.of(sortKey);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static final char SEPARATOR = '\n';
+
+    private final SortKey sortKey;
+    private final String value;
+    private final String cpf;
+
+    private UserCursor(SortKey sortKey, String value, String cpf) {
+        this.sortKey = sortKey;
+        this.value = value;
+        this.cpf = cpf;
+    }
+
+    public static UserCursor start(SortKey sortKey) {
+        return new UserCursor(sortKey, null, null);
+    }
+
+    public static UserCursor after(SortKey sortKey, UserModel userModel) {
+        return new UserCursor(sortKey, sortKey.valueOf(userModel), userModel.getCpf());
+    }
+
+    /**
+     * @return the cursor held by the token, or empty when the token was not issued by {@link #encode()}
+     */
+    public static Optional<UserCursor> decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = decoded.indexOf(SEPARATOR);
+            int last = decoded.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last) {
+                return Optional.empty();
+            }
+
+            return SortKey.of(decoded.substring(0, first))
+                    .map(sortKey -> new UserCursor(sortKey,
+                            decoded.substring(first + 1, last),
+                            decoded.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String encode() {
+        String decoded = sortKey.getProperty() + SEPARATOR + Objects.toString(value, "") + SEPARATOR + cpf;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isStart() {
+        return Objects.isNull(cpf);
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getCpf() {
+        return cpf;
+    }
+}
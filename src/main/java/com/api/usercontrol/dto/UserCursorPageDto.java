@@ -0,0 +1,30 @@
+package com.api.usercontrol.dto;
+
+import java.util.List;
+
+public class UserCursorPageDto<T> {
+    private final List<T> content;
+    private final int size;
+    private final String nextCursor;
+
+    public UserCursorPageDto(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the token to ask for the following page, or null when this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
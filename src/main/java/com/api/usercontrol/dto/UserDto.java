@@ -2,16 +2,15 @@ package com.api.usercontrol.dto;
 
 import com.api.usercontrol.configs.Config;
 import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.validators.ValidEmail;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import org.openapitools.jackson.nullable.JsonNullable;
 import org.springframework.lang.Nullable;
 
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
-import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import java.sql.Date;
 import java.util.Objects;
@@ -35,7 +34,7 @@ public class UserDto {
             timezone = Config.TIME_ZONE)
     private Date dateOfBirth;
     @Nullable
-    @Email(regexp = Config.EMAIL_REGEXP_FORMAT, flags = Pattern.Flag.CASE_INSENSITIVE)
+    @ValidEmail
     private JsonNullable<String> email;
 
     public UserDto() {
@@ -0,0 +1,81 @@
+package com.api.usercontrol.dto;
+
+import com.api.usercontrol.configs.Config;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The user fields a client may ask for with {@code fields=}, each selected on its own so only
+ * the requested columns are read and serialized.
+ */
+public enum UserField {
+    CPF("cpf"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName"),
+    DATE_OF_BIRTH("dateOfBirth"),
+    EMAIL("email"),
+    REGISTRATION_DATE("registrationDate");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(Config.DATE_FORMAT)
+            .withZone(ZoneId.of(Config.TIME_ZONE));
+
+    private final String property;
+
+    UserField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the value as the entity serializes it: the {@code @JsonFormat} of the date of birth
+     * does not apply once the value is outside the entity.
+     */
+    public Object jsonValue(Object value) {
+        if (this == DATE_OF_BIRTH && value instanceof Date) {
+            return DATE_FORMATTER.format(Instant.ofEpochMilli(((Date) value).getTime()));
+        }
+        return value;
+    }
+
+    /**
+     * Parses a comma separated list of fields, ignoring repeated ones.
+     *
+     * @return the fields in the given order, or empty when none is given or one is not allowed
+     */
+    public static Optional<List<UserField>> parse(String fields) {
+        if (Objects.isNull(fields)) {
+            return Optional.empty();
+        }
+
+        List<UserField> userFields = new ArrayList<>();
+        for (String property : fields.split(",")) {
+            Optional<UserField> userFieldOptional = of(property.trim());
+            if (!userFieldOptional.isPresent()) {
+                return Optional.empty();
+            }
+            if (!userFields.contains(userFieldOptional.get())) {
+                userFields.add(userFieldOptional.get());
+            }
+        }
+        return Optional.of(userFields);
+    }
+
+    public static Optional<UserField> of(String property) {
+        for (UserField userField : values()) {
+            if (userField.property.equalsIgnoreCase(property)) {
+                return Optional.of(userField);
+            }
+        }
+        return Optional.empty();
+    }
+}
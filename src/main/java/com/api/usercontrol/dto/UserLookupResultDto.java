@@ -0,0 +1,29 @@
+package com.api.usercontrol.dto;
+
+import com.api.usercontrol.models.UserModel;
+
+import java.util.List;
+
+public class UserLookupResultDto {
+    private final List<UserModel> users;
+    private final List<String> missing;
+
+    public UserLookupResultDto(List<UserModel> users, List<String> missing) {
+        this.users = users;
+        this.missing = missing;
+    }
+
+    /**
+     * @return the users found, in the order their CPFs were asked for
+     */
+    public List<UserModel> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the CPFs asked for that are not registered
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,98 @@
+package com.api.usercontrol.dto;
+
+import com.api.usercontrol.models.UserModel;
+
+import java.util.List;
+
+/**
+ * Outcome of an update of a user. A partial one never loads the user: at most it reads its
+ * version, when there is nothing to change or no version to expect. A full one loads the user
+ * and hands it back as saved, or the errors of the changes when they break its constraints.
+ */
+public class UserUpdateResultDto {
+    public enum Status {
+        UPDATED,
+        NOT_FOUND,
+        MODIFIED,
+        CONFLICT
+    }
+
+    private final Status status;
+    private final String reason;
+    private final Long version;
+    private final List<String> errors;
+    private final UserModel user;
+
+    private UserUpdateResultDto(Status status, String reason, Long version, List<String> errors, UserModel user) {
+        this.status = status;
+        this.reason = reason;
+        this.version = version;
+        this.errors = errors;
+        this.user = user;
+    }
+
+    /**
+     * @param version the version the user has after the update, its new ETag
+     */
+    public static UserUpdateResultDto updated(Long version) {
+        return new UserUpdateResultDto(Status.UPDATED, null, version, null, null);
+    }
+
+    /**
+     * @param user the user as saved, with its new version
+     */
+    public static UserUpdateResultDto updated(UserModel user) {
+        return new UserUpdateResultDto(Status.UPDATED, null, user.getVersion(), null, user);
+    }
+
+    public static UserUpdateResultDto notFound() {
+        return new UserUpdateResultDto(Status.NOT_FOUND, null, null, null, null);
+    }
+
+    /**
+     * The user exists but its version is not the expected one.
+     */
+    public static UserUpdateResultDto modified() {
+        return new UserUpdateResultDto(Status.MODIFIED, null, null, null, null);
+    }
+
+    public static UserUpdateResultDto conflict(String reason) {
+        return new UserUpdateResultDto(Status.CONFLICT, reason, null, null, null);
+    }
+
+    /**
+     * The changes break the constraints of the user, one error each.
+     */
+    public static UserUpdateResultDto invalid(List<String> errors) {
+        return new UserUpdateResultDto(Status.CONFLICT, null, null, errors, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * The version of the user once updated, null unless {@link Status#UPDATED}.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * The errors of the constraints broken, null unless the changes were {@link #invalid(List)}.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * The user as saved by a full update, null otherwise.
+     */
+    public UserModel getUser() {
+        return user;
+    }
+}
@@ -0,0 +1,45 @@
+package com.api.usercontrol.events;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Stands in for the CPF in the recorded events. There are too few CPFs for a plain hash to hide
+ * them, so it is salted with a value drawn at startup: the events of a user can be told apart
+ * within the recordings of a run, but the hash cannot be looked up from the CPF.
+ */
+final class CpfHash {
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 8;
+    private static final byte[] salt = new byte[SALT_LENGTH];
+
+    static {
+        new SecureRandom().nextBytes(salt);
+    }
+
+    private CpfHash() {
+    }
+
+    static String of(String cpf) {
+        if (cpf == null) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(salt);
+        byte[] hash = digest.digest(cpf.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder(HASH_LENGTH * 2);
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
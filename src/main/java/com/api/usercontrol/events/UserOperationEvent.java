@@ -0,0 +1,82 @@
+package com.api.usercontrol.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Name("com.api.usercontrol.UserOperation")
+@Label("User Operation")
+@Category("User Control")
+@Description("A user created, updated, deleted or looked up by the service")
+@StackTrace(false)
+public class UserOperationEvent extends jdk.jfr.Event {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String LOOKUP = "lookup";
+    public static final String SUCCESS = "success";
+    public static final String REJECTED = "rejected";
+    public static final String NOT_FOUND = "not-found";
+    public static final String MODIFIED = "modified";
+    public static final String ERROR = "error";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("CPF Hash")
+    @Description("Salted hash of the CPF, absent when the operation covers several users")
+    String cpfHash;
+
+    @Label("Users")
+    int users;
+
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * Runs an operation on one user, recording it with the outcome its result maps to, or
+     * {@value #ERROR} when it throws.
+     */
+    public static <T> T record(String operation, String cpf, Supplier<T> action, Function<? super T, String> outcome) {
+        return record(operation, cpf, 1, action, outcome);
+    }
+
+    /**
+     * Runs an operation on several users, recording how many without their CPFs.
+     */
+    public static <T> T recordAll(String operation, int users, Supplier<T> action, Function<? super T, String> outcome) {
+        return record(operation, null, users, action, outcome);
+    }
+
+    //region private methods
+    private static <T> T record(String operation, String cpf, int users, Supplier<T> action,
+                                Function<? super T, String> outcome) {
+        UserOperationEvent event = new UserOperationEvent();
+        if (!event.isEnabled()) {
+            return action.get();
+        }
+
+        event.begin();
+        String result = ERROR;
+        try {
+            T value = action.get();
+            result = outcome.apply(value);
+            return value;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.cpfHash = CpfHash.of(cpf);
+                event.users = users;
+                event.outcome = result;
+                event.commit();
+            }
+        }
+    }
+    //endregion
+}
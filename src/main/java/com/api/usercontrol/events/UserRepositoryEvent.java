@@ -0,0 +1,46 @@
+package com.api.usercontrol.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.api.usercontrol.UserRepository")
+@Label("User Repository Call")
+@Category("User Control")
+@Description("A call to a UserRepository method, including its connection wait")
+@StackTrace(false)
+public class UserRepositoryEvent extends jdk.jfr.Event {
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    @Label("Method")
+    String method;
+
+    @Label("CPF Hash")
+    @Description("Salted hash of the CPF the call is keyed by, absent for the other calls")
+    String cpfHash;
+
+    @Label("Outcome")
+    String outcome;
+
+    private transient String cpf;
+
+    public static UserRepositoryEvent begin(String method, String cpf) {
+        UserRepositoryEvent event = new UserRepositoryEvent();
+        event.method = method;
+        event.cpf = cpf;
+        event.begin();
+        return event;
+    }
+
+    public void finish(boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            cpfHash = CpfHash.of(cpf);
+            outcome = succeeded ? SUCCESS : ERROR;
+            commit();
+        }
+    }
+}
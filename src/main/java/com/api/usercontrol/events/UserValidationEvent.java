@@ -0,0 +1,50 @@
+package com.api.usercontrol.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.api.usercontrol.UserValidation")
+@Label("User Validation")
+@Category("User Control")
+@Description("A stage of the user registration rules")
+@StackTrace(false)
+public class UserValidationEvent extends jdk.jfr.Event {
+    public static final String PASSED = "passed";
+    public static final String FAILED = "failed";
+    public static final String ERROR = "error";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("CPF Hash")
+    @Description("Salted hash of the CPF of the user validated")
+    String cpfHash;
+
+    @Label("Outcome")
+    String outcome;
+
+    private transient String cpf;
+
+    public static UserValidationEvent begin(String stage, String cpf) {
+        UserValidationEvent event = new UserValidationEvent();
+        event.stage = stage;
+        event.cpf = cpf;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param passed whether the user passed the stage, null when the check threw
+     */
+    public void finish(Boolean passed) {
+        end();
+        if (shouldCommit()) {
+            cpfHash = CpfHash.of(cpf);
+            outcome = passed == null ? ERROR : passed ? PASSED : FAILED;
+            commit();
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.mapstruct.NullValuePropertyMappingStrategy;
 public interface UserMapper {
 
     @Mapping(target = "cpf", ignore = true)
+    @Mapping(target = "version", ignore = true)
     UserModel map(UserDto entity);
 
     UserDto map(UserModel entity) throws JsonProcessingException;
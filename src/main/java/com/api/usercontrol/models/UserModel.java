@@ -1,19 +1,34 @@
 package com.api.usercontrol.models;
 
 import com.api.usercontrol.configs.Config;
+import com.api.usercontrol.utils.Tools;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import java.io.Serializable;
 import java.sql.Date;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
 
 @Entity
-@Table(name = "TB_USER")
-public class UserModel implements Serializable {
+@Table(name = "TB_USER", indexes = {
+        @Index(name = "IDX_TB_USER_FIRST_NAME_CPF", columnList = "firstName, cpf"),
+        @Index(name = "IDX_TB_USER_LAST_NAME_CPF", columnList = "lastName, cpf")
+})
+public class UserModel implements Persistable<String>, Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
@@ -33,6 +48,20 @@ public class UserModel implements Serializable {
     private String email;
     @Column(nullable = false)
     private LocalDateTime registrationDate;
+    // lower-cased and unaccented copies of the names backing the name filters
+    @Column(length = 100)
+    private String firstNameSearch;
+    @Column(length = 100)
+    private String lastNameSearch;
+    // lower-cased copy of the email, unique when the optimistic insert is enabled
+    @Column(length = 50)
+    private String emailNormalized;
+    // optimistic lock, exposed to the clients as the ETag of the user
+    @Version
+    private Long version;
+    // lets save() persist new users instead of merging them, which selects the row first
+    @Transient
+    private boolean isNew = true;
 
     public UserModel() {
     }
@@ -44,6 +73,7 @@ public class UserModel implements Serializable {
         setDateOfBirth(builder.dateOfBirth);
         setEmail(builder.email);
         setRegistrationDate(builder.registrationDate);
+        version = builder.version;
     }
 
     public static UserModel.Builder builder() {
@@ -98,6 +128,59 @@ public class UserModel implements Serializable {
         this.registrationDate = registrationDate;
     }
 
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a detached copy of the user, including its derived columns and new state.
+     */
+    public UserModel copy() {
+        UserModel copy = new UserModel(builder()
+                .cpf(cpf)
+                .firstName(firstName)
+                .lastName(lastName)
+                .dateOfBirth(dateOfBirth)
+                .email(email)
+                .registrationDate(registrationDate));
+        copy.firstNameSearch = firstNameSearch;
+        copy.lastNameSearch = lastNameSearch;
+        copy.emailNormalized = emailNormalized;
+        copy.version = version;
+        copy.isNew = isNew;
+        return copy;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return cpf;
+    }
+
+    /**
+     * Whether the user has not been inserted yet: true once built, false once loaded or persisted.
+     */
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeDerivedColumns() {
+        firstNameSearch = Tools.normalizeForSearch(firstName);
+        lastNameSearch = Tools.normalizeForSearch(lastName);
+        emailNormalized = Objects.isNull(email) ? null : email.toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public String toString() {
         return "CPF: " + this.cpf + " Name: " + this.getLastName() + ", " + this.getFirstName();
@@ -110,6 +193,7 @@ public class UserModel implements Serializable {
         private Date dateOfBirth;
         private String email;
         private LocalDateTime registrationDate;
+        private Long version;
 
         private Builder() {
         }
@@ -144,6 +228,14 @@ public class UserModel implements Serializable {
             return this;
         }
 
+        /**
+         * Only for users read without JPA, which manages the version of its own.
+         */
+        public UserModel.Builder version(Long val) {
+            version = val;
+            return this;
+        }
+
         public UserModel build() {
             return new UserModel(this);
         }
@@ -0,0 +1,18 @@
+package com.api.usercontrol.repositories;
+
+/**
+ * Projection of {@link UserRepository#probeConflicts(String, String)}, the uniqueness checks a
+ * registration or update needs, answered by a single query.
+ */
+public interface UserConflictProbe {
+
+    /**
+     * Whether a user with the CPF is registered.
+     */
+    boolean isCpfTaken();
+
+    /**
+     * Whether the email belongs to a user with another CPF.
+     */
+    boolean isEmailTaken();
+}
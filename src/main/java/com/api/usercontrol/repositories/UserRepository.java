@@ -1,21 +1,75 @@
 package com.api.usercontrol.repositories;
 
 import com.api.usercontrol.models.UserModel;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserModel, String> {
+public interface UserRepository extends JpaRepository<UserModel, String>, UserRepositoryCustom {
 
     boolean existsByCpf(String cpf);
 
-    boolean existsByEmail(String email);
+    /**
+     * @param emailNormalized lower-cased, as it is stored in EMAIL_NORMALIZED
+     */
+    boolean existsByEmailNormalized(String emailNormalized);
 
-    List<UserModel> findUserByEmail(String email);
+    /**
+     * Compares the email lower-cased, as the unique index over EMAIL_NORMALIZED does.
+     */
+    @Query(value = "SELECT EXISTS(SELECT 1 FROM TB_USER WHERE CPF = :cpf) AS \"cpfTaken\","
+            + " EXISTS(SELECT 1 FROM TB_USER WHERE EMAIL_NORMALIZED = LOWER(:email) AND CPF <> :cpf) AS \"emailTaken\"",
+            nativeQuery = true)
+    UserConflictProbe probeConflicts(@Param("cpf") String cpf, @Param("email") String email);
 
-    List<UserModel> findByFirstNameContains(String firstName);
+    @Query("select u.cpf from UserModel u where u.cpf in :cpfs")
+    List<String> findCpfsIn(@Param("cpfs") Collection<String> cpfs);
 
-    List<UserModel> findByLastNameContains(String lastName);
+    /**
+     * @param emails lower-cased, as they are stored in EMAIL_NORMALIZED
+     * @return the ones registered, lower-cased
+     */
+    @Query("select u.emailNormalized from UserModel u where u.emailNormalized in :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
+    List<UserModel> findByCpfIn(Collection<String> cpfs);
+
+    @Query("select u.version from UserModel u where u.cpf = :cpf")
+    Optional<Long> findVersionByCpf(@Param("cpf") String cpf);
+
+    /**
+     * @return the number of users deleted, 0 when the CPF is not registered
+     */
+    @Modifying
+    @Query("delete from UserModel u where u.cpf = :cpf")
+    int deleteByCpf(@Param("cpf") String cpf);
+
+    /**
+     * @return the number of users deleted, 0 when the user does not exist or has another version
+     */
+    @Modifying
+    @Query("delete from UserModel u where u.cpf = :cpf and u.version = :version")
+    int deleteByCpfAndVersion(@Param("cpf") String cpf, @Param("version") Long version);
+
+    @Modifying
+    @Query("delete from UserModel u where u.cpf in :cpfs")
+    int deleteByCpfIn(@Param("cpfs") Collection<String> cpfs);
+
+    /**
+     * Reads one row more than the page size to know whether there is a next page, without counting.
+     */
+    Slice<UserModel> findAllBy(Pageable pageable);
+
+    List<UserModel> findByFirstNameSearchContains(String firstNameSearch);
+
+    List<UserModel> findByLastNameSearchContains(String lastNameSearch);
 }
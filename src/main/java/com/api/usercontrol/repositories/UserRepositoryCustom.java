@@ -0,0 +1,85 @@
+package com.api.usercontrol.repositories;
+
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserField;
+import com.api.usercontrol.models.UserModel;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Persists new users without the select-before-insert done by {@code save}, letting
+     * Hibernate group the inserts in JDBC batches.
+     *
+     * @param userModelList users whose CPF is known not to be registered
+     */
+    void persistAll(List<UserModel> userModelList);
+
+    /**
+     * Inserts a new user with a single statement, flushed before returning so a duplicate CPF or
+     * email surfaces here as a {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    void insert(UserModel userModel);
+
+    /**
+     * Sets the given attributes of a user and increments its version with a single UPDATE,
+     * without loading it. Entity callbacks do not run, so derived columns must be among the values.
+     *
+     * The new version is the expected one plus one; without an expected version it is read back
+     * in the same transaction, while the row is still locked by the update.
+     *
+     * @param values          new value of each attribute, by attribute name
+     * @param expectedVersion when not null, the row is only updated while it has this version
+     * @return the version of the user once updated, null when the user does not exist or has another version
+     */
+    Long updateFields(String cpf, Map<String, Object> values, Long expectedVersion);
+
+    /**
+     * Selects only the given fields of a page of users, each user as a map from field to value.
+     */
+    Page<Map<String, Object>> findAllFields(List<UserField> fields, Pageable pageable);
+
+    /**
+     * Selects only the given fields of the users whose property contains the text.
+     */
+    List<Map<String, Object>> findFieldsByContains(List<UserField> fields, String property, String text);
+
+    /**
+     * Selects, in CPF order, the CPFs that follow the given one among the users whose property
+     * contains the text, so a filter can be walked in chunks while the users are deleted.
+     *
+     * @param afterCpf null to start from the first CPF
+     */
+    List<String> findCpfsByContainsAfter(String property, String text, String afterCpf, int limit);
+
+    /**
+     * Deletes, with a single statement, the users of the given CPFs whose property still contains
+     * the text, so a user changed since its CPF was selected by {@link #findCpfsByContainsAfter} is left.
+     *
+     * @return the number of users deleted
+     */
+    int deleteByContainsIn(String property, String text, Collection<String> cpfs);
+
+    /**
+     * Streams every user ordered by CPF through a server-side cursor. Each user is detached once
+     * handed out so the persistence context does not grow with the table. The stream must be
+     * consumed and closed inside a transaction.
+     *
+     * @param fetchSize rows fetched from the database per round trip
+     */
+    Stream<UserModel> streamAll(int fetchSize);
+
+    /**
+     * Seeks the users that follow the cursor in the order of its sort key, with the CPF as
+     * tiebreaker. The cost does not depend on how deep the cursor is, and no count is run.
+     *
+     * @param limit maximum number of users returned
+     */
+    List<UserModel> findPageAfter(UserCursor cursor, int limit);
+}
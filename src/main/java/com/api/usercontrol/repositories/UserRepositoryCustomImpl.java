@@ -0,0 +1,195 @@
+package com.api.usercontrol.repositories;
+
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserField;
+import com.api.usercontrol.models.UserModel;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void persistAll(List<UserModel> userModelList) {
+        userModelList.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    @Transactional
+    public void insert(UserModel userModel) {
+        entityManager.persist(userModel);
+        entityManager.flush();
+    }
+
+    @Override
+    @Transactional
+    public Long updateFields(String cpf, Map<String, Object> values, Long expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<UserModel> update = criteriaBuilder.createCriteriaUpdate(UserModel.class);
+        Root<UserModel> root = update.from(UserModel.class);
+
+        values.forEach(update::set);
+        update.set(root.<Long>get("version"), criteriaBuilder.sum(root.<Long>get("version"), 1L));
+
+        Predicate where = criteriaBuilder.equal(root.get("cpf"), cpf);
+        if (Objects.nonNull(expectedVersion)) {
+            where = criteriaBuilder.and(where, criteriaBuilder.equal(root.get("version"), expectedVersion));
+        }
+        update.where(where);
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            return null;
+        }
+        if (Objects.nonNull(expectedVersion)) {
+            return expectedVersion + 1;
+        }
+        return entityManager.createQuery("select u.version from UserModel u where u.cpf = :cpf", Long.class)
+                .setParameter("cpf", cpf)
+                .getSingleResult();
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAllFields(List<UserField> fields, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<UserModel> root = query.from(UserModel.class);
+        query.multiselect(selections(fields, root)).orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> content = toMaps(fields, typedQuery.getResultList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
+            countQuery.select(criteriaBuilder.count(countQuery.from(UserModel.class)));
+            return entityManager.createQuery(countQuery).getSingleResult();
+        });
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByContains(List<UserField> fields, String property, String text) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<UserModel> root = query.from(UserModel.class);
+        query.multiselect(selections(fields, root))
+                .where(contains(criteriaBuilder, root, property, text));
+
+        return toMaps(fields, entityManager.createQuery(query).getResultList());
+    }
+
+    @Override
+    public List<String> findCpfsByContainsAfter(String property, String text, String afterCpf, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> query = criteriaBuilder.createQuery(String.class);
+        Root<UserModel> root = query.from(UserModel.class);
+
+        Predicate where = contains(criteriaBuilder, root, property, text);
+        if (Objects.nonNull(afterCpf)) {
+            where = criteriaBuilder.and(where, criteriaBuilder.greaterThan(root.get("cpf"), afterCpf));
+        }
+        query.select(root.get("cpf"))
+                .where(where)
+                .orderBy(criteriaBuilder.asc(root.get("cpf")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int deleteByContainsIn(String property, String text, Collection<String> cpfs) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaDelete<UserModel> delete = criteriaBuilder.createCriteriaDelete(UserModel.class);
+        Root<UserModel> root = delete.from(UserModel.class);
+        delete.where(root.get("cpf").in(cpfs), contains(criteriaBuilder, root, property, text));
+
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    @Override
+    public Stream<UserModel> streamAll(int fetchSize) {
+        return entityManager.createQuery("select u from UserModel u order by u.cpf", UserModel.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public List<UserModel> findPageAfter(UserCursor cursor, int limit) {
+        TypedQuery<UserModel> query;
+        if (cursor.getSortKey() == UserCursor.SortKey.CPF) {
+            query = cursor.isStart()
+                    ? entityManager.createQuery("select u from UserModel u order by u.cpf", UserModel.class)
+                    : entityManager.createQuery("select u from UserModel u where u.cpf > :cpf order by u.cpf", UserModel.class)
+                    .setParameter("cpf", cursor.getCpf());
+        } else {
+            String property = "u." + cursor.getSortKey().getProperty();
+            String orderBy = " order by " + property + ", u.cpf";
+            // the leading ">=" lets the database start the range scan on the (key, cpf) index
+            query = cursor.isStart()
+                    ? entityManager.createQuery("select u from UserModel u" + orderBy, UserModel.class)
+                    : entityManager.createQuery("select u from UserModel u where " + property + " >= :value"
+                            + " and (" + property + " > :value or u.cpf > :cpf)" + orderBy, UserModel.class)
+                    .setParameter("value", cursor.getValue())
+                    .setParameter("cpf", cursor.getCpf());
+        }
+
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    //region private methods
+    private static Predicate contains(CriteriaBuilder criteriaBuilder, Root<UserModel> root, String property, String text) {
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return criteriaBuilder.like(root.get(property), pattern, '\\');
+    }
+
+    private static List<Selection<?>> selections(List<UserField> fields, Root<UserModel> root) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (UserField field : fields) {
+            selections.add(root.get(field.getProperty()).alias(field.getProperty()));
+        }
+        return selections;
+    }
+
+    private static List<Map<String, Object>> toMaps(List<UserField> fields, List<Tuple> tuples) {
+        List<Map<String, Object>> maps = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> map = new LinkedHashMap<>(fields.size() * 2);
+            for (int i = 0; i < fields.size(); i++) {
+                map.put(fields.get(i).getProperty(), fields.get(i).jsonValue(tuple.get(i)));
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+    //endregion
+}
@@ -0,0 +1,128 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.models.UserModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded, in-process cache of the users looked up by CPF, with a short lived negative cache for
+ * the CPFs that are not registered. Callers always get their own copy of a cached user, so
+ * changing it does not change the cache.
+ * Hit, miss and eviction statistics are published as the "users" and "users.missing" caches.
+ */
+@Component
+public class UserCache implements MeterBinder {
+    private final Cache<String, UserModel> users;
+    private final Cache<String, Boolean> missingCpfs;
+
+    public UserCache(UserControlProperties properties) {
+        UserControlProperties.Cache cache = properties.getCache();
+        this.users = Caffeine.newBuilder()
+                .maximumSize(cache.getMaximumSize())
+                .expireAfterWrite(cache.getTtl())
+                .recordStats()
+                .build();
+        this.missingCpfs = Caffeine.newBuilder()
+                .maximumSize(cache.getNegativeMaximumSize())
+                .expireAfterWrite(cache.getNegativeTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached user or, on a miss, the one read by the loader, caching a copy of it or
+     * remembering that the CPF is not registered.
+     */
+    public Optional<UserModel> get(String cpf, Function<String, Optional<UserModel>> loader) {
+        UserModel cached = users.getIfPresent(cpf);
+        if (Objects.nonNull(cached)) {
+            return Optional.of(cached.copy());
+        }
+        if (Objects.nonNull(missingCpfs.getIfPresent(cpf))) {
+            return Optional.empty();
+        }
+
+        Optional<UserModel> loaded = loader.apply(cpf);
+        if (loaded.isPresent()) {
+            users.put(cpf, loaded.get().copy());
+        } else {
+            missingCpfs.put(cpf, Boolean.TRUE);
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the cached users among the given CPFs and loads the rest with a single call to the
+     * loader, caching copies of the users read and remembering the CPFs it did not return.
+     *
+     * @return the users found by CPF; the CPFs not registered are left out
+     */
+    public Map<String, UserModel> getAll(Collection<String> cpfs,
+                                         Function<Collection<String>, List<UserModel>> loader) {
+        Map<String, UserModel> found = new HashMap<>();
+        List<String> cpfsToLoad = new ArrayList<>();
+        for (String cpf : cpfs) {
+            UserModel cached = users.getIfPresent(cpf);
+            if (Objects.nonNull(cached)) {
+                found.put(cpf, cached.copy());
+            } else if (Objects.isNull(missingCpfs.getIfPresent(cpf))) {
+                cpfsToLoad.add(cpf);
+            }
+        }
+        if (cpfsToLoad.isEmpty()) {
+            return found;
+        }
+
+        for (UserModel loaded : loader.apply(cpfsToLoad)) {
+            users.put(loaded.getCpf(), loaded.copy());
+            found.put(loaded.getCpf(), loaded);
+        }
+        for (String cpf : cpfsToLoad) {
+            if (!found.containsKey(cpf)) {
+                missingCpfs.put(cpf, Boolean.TRUE);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Forgets the users with the given CPFs, now and, when called inside a transaction, once it
+     * commits, so a lookup running meanwhile does not keep the previous row.
+     */
+    public void invalidate(Collection<String> cpfs) {
+        users.invalidateAll(cpfs);
+        missingCpfs.invalidateAll(cpfs);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    users.invalidateAll(cpfs);
+                    missingCpfs.invalidateAll(cpfs);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "users");
+        CaffeineCacheMetrics.monitor(registry, missingCpfs, "users.missing");
+    }
+}
@@ -0,0 +1,77 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.utils.DatabaseProduct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Approximate number of users for the totals of pages that must not count the table. On
+ * PostgreSQL it is the planner's row estimate, kept up to date by autovacuum; elsewhere, and
+ * while the table was never analyzed, it is an exact count reused for a while.
+ */
+@Component
+public class UserCountEstimator {
+    private static final Logger log = LoggerFactory.getLogger(UserCountEstimator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserControlProperties.Count properties;
+    private volatile Boolean isPostgreSql;
+    private volatile ExactCount exactCount;
+
+    public UserCountEstimator(JdbcTemplate jdbcTemplate, UserControlProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties.getCount();
+    }
+
+    public long estimate() {
+        if (isPostgreSql()) {
+            try {
+                Long estimate = jdbcTemplate.queryForObject(
+                        "SELECT reltuples::bigint FROM pg_class WHERE oid = 'tb_user'::regclass", Long.class);
+                // -1 until the table is first vacuumed or analyzed
+                if (Objects.nonNull(estimate) && estimate >= 0) {
+                    return estimate;
+                }
+            } catch (DataAccessException e) {
+                log.warn("User count estimate could not be read -> {}", e.getMessage());
+            }
+        }
+        return cachedExactCount();
+    }
+
+    //region private methods
+    private long cachedExactCount() {
+        ExactCount current = exactCount;
+        long now = System.nanoTime();
+        if (Objects.isNull(current) || now - current.expiresAt >= 0) {
+            long count = Objects.requireNonNull(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TB_USER", Long.class));
+            current = new ExactCount(count, now + properties.getExactTtl().toNanos());
+            exactCount = current;
+        }
+        return current.count;
+    }
+
+    private boolean isPostgreSql() {
+        if (Objects.isNull(isPostgreSql)) {
+            isPostgreSql = DatabaseProduct.isPostgreSql(jdbcTemplate.getDataSource());
+        }
+        return isPostgreSql;
+    }
+
+    private static final class ExactCount {
+        private final long count;
+        private final long expiresAt;
+
+        private ExactCount(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,226 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bloom filters over the registered CPFs and lower-cased emails, answering "definitely not
+ * registered" without a query. They are built when the application is ready, receive every user
+ * saved, and are rebuilt periodically to forget the deleted ones. Until the first build, and
+ * when disabled, every CPF and email might be registered. They know nothing of the users saved by
+ * other instances, so they are only enabled on a single instance, which {@link UserExistenceFilterLock}
+ * enforces among the instances that enable them.
+ */
+@Component
+public class UserExistenceFilter implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(UserExistenceFilter.class);
+    // the CPF ranges scanned in parallel, by their first two characters
+    private static final int SCAN_RANGES = 100;
+    private static final int SCAN_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserControlProperties.Bloom properties;
+    private volatile Filters filters;
+    private volatile Filters building;
+    private volatile boolean disabled;
+
+    public UserExistenceFilter(JdbcTemplate jdbcTemplate, UserControlProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties.getBloom();
+    }
+
+    public boolean mightContainCpf(String cpf) {
+        Filters current = filters;
+        return Objects.isNull(current) || Objects.isNull(cpf) || current.cpfs.mightContain(cpf);
+    }
+
+    public boolean mightContainEmail(String email) {
+        Filters current = filters;
+        return Objects.isNull(current) || Objects.isNull(email) || current.emails.mightContain(normalize(email));
+    }
+
+    /**
+     * Adds the user now, so concurrent registrations see it, and again once the current transaction
+     * commits, so a rebuild that started meanwhile, and may have missed the uncommitted row, has it too.
+     */
+    public void add(UserModel userModel) {
+        addNow(userModel);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(userModel);
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (isEnabled()) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${usercontrol.bloom.rebuild-interval:PT1H}",
+            initialDelayString = "${usercontrol.bloom.rebuild-interval:PT1H}")
+    public void scheduledRebuild() {
+        if (isEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Drops the filters for good, so every CPF and email might be registered again, as when they
+     * can no longer be trusted to know every user.
+     */
+    public void disable() {
+        disabled = true;
+        filters = null;
+    }
+
+    /**
+     * Reads every CPF and email into new filters, scanning CPF ranges in parallel, then replaces
+     * the current filters with them. Users added meanwhile go into both.
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        Long userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TB_USER", Long.class);
+        long expectedInsertions = Math.max(properties.getExpectedInsertions(), 2 * Objects.requireNonNull(userCount));
+        Filters newFilters = new Filters(new BloomFilter(expectedInsertions, properties.getFalsePositiveRate()),
+                new BloomFilter(expectedInsertions, properties.getFalsePositiveRate()));
+
+        building = newFilters;
+        boolean built = false;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getScanParallelism()));
+        try {
+            List<Future<?>> scans = new ArrayList<>(SCAN_RANGES);
+            for (int range = 0; range < SCAN_RANGES; range++) {
+                String from = range == 0 ? null : String.format("%02d", range);
+                String to = range == SCAN_RANGES - 1 ? null : String.format("%02d", range + 1);
+                scans.add(executor.submit(() -> scan(from, to, newFilters)));
+            }
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+            built = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("User existence filters rebuild interrupted");
+            return;
+        } catch (ExecutionException e) {
+            log.warn("User existence filters rebuild failed -> error:{}", e.getCause().getMessage());
+            return;
+        } finally {
+            executor.shutdownNow();
+            // published before the building ones are dropped, so an add never misses both
+            if (built && !disabled) {
+                filters = newFilters;
+            }
+            building = null;
+        }
+
+        log.info("User existence filters built -> users:{} bits:{} hashFunctions:{} time:{}ms", userCount,
+                newFilters.cpfs.bitSize(), newFilters.cpfs.hashFunctions(), System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "usercontrol.bloom.false.positive.rate", "cpf", null,
+                filters -> filters.cpfs.expectedFalsePositiveRate());
+        gauge(registry, "usercontrol.bloom.false.positive.rate", "email", null,
+                filters -> filters.emails.expectedFalsePositiveRate());
+        gauge(registry, "usercontrol.bloom.memory", "cpf", "bytes", filters -> filters.cpfs.memoryBytes());
+        gauge(registry, "usercontrol.bloom.memory", "email", "bytes", filters -> filters.emails.memoryBytes());
+    }
+
+    //region private methods
+    private boolean isEnabled() {
+        return properties.isEnabled() && !disabled;
+    }
+
+    private void addNow(UserModel userModel) {
+        // read in the opposite order rebuild publishes them: with no filters being built, the current ones are the newest
+        Filters next = building;
+        Filters current = filters;
+        for (Filters target : new Filters[]{next, current}) {
+            if (Objects.nonNull(target)) {
+                target.cpfs.put(userModel.getCpf());
+                if (Objects.nonNull(userModel.getEmail())) {
+                    target.emails.put(normalize(userModel.getEmail()));
+                }
+            }
+        }
+    }
+
+    private void scan(String from, String to, Filters target) {
+        StringBuilder sql = new StringBuilder("SELECT CPF, EMAIL_NORMALIZED FROM TB_USER WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(2);
+        if (Objects.nonNull(from)) {
+            sql.append(" AND CPF >= ?");
+            args.add(from);
+        }
+        if (Objects.nonNull(to)) {
+            sql.append(" AND CPF < ?");
+            args.add(to);
+        }
+
+        JdbcTemplate scanTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        scanTemplate.setFetchSize(SCAN_FETCH_SIZE);
+        scanTemplate.query(sql.toString(), resultSet -> {
+            target.cpfs.put(resultSet.getString("CPF"));
+            String email = resultSet.getString("EMAIL_NORMALIZED");
+            if (Objects.nonNull(email)) {
+                target.emails.put(email);
+            }
+        }, args.toArray());
+    }
+
+    private void gauge(MeterRegistry registry, String name, String filter, String baseUnit,
+                       ToDoubleFunction<Filters> value) {
+        Gauge.builder(name, this, existenceFilter -> Objects.isNull(existenceFilter.filters)
+                        ? Double.NaN : value.applyAsDouble(existenceFilter.filters))
+                .tag("filter", filter)
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Filters {
+        private final BloomFilter cpfs;
+        private final BloomFilter emails;
+
+        private Filters(BloomFilter cpfs, BloomFilter emails) {
+            this.cpfs = cpfs;
+            this.emails = emails;
+        }
+    }
+    //endregion
+}
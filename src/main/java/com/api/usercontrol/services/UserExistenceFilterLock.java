@@ -0,0 +1,143 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.utils.DatabaseProduct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Keeps the {@link UserExistenceFilter} to a single instance when it is enabled: its filters only
+ * learn the users saved by this process, so next to another instance with them they would answer
+ * "not registered" for users that are. On PostgreSQL an instance with the filters holds an
+ * exclusive advisory lock on a connection of its own, outside the pool, so a second one fails to
+ * start. The lock is checked periodically; once lost, as when the session drops, the filters are
+ * disabled for good. Instances without the filters take no lock, and other databases are embedded
+ * ones, with a single instance.
+ */
+@Component
+public class UserExistenceFilterLock {
+    private static final Logger log = LoggerFactory.getLogger(UserExistenceFilterLock.class);
+    // "usrfiltr", a key no other application takes on the same database
+    static final long LOCK_KEY = 0x75737266696c7472L;
+
+    private final DataSource dataSource;
+    private final ConnectionOpener connectionOpener;
+    private final UserExistenceFilter userExistenceFilter;
+    private final boolean enabled;
+    private Connection connection;
+
+    @Autowired
+    public UserExistenceFilterLock(DataSource dataSource, DataSourceProperties dataSourceProperties,
+                                   UserExistenceFilter userExistenceFilter, UserControlProperties properties) {
+        this(dataSource, () -> DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                        dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()),
+                userExistenceFilter, properties);
+    }
+
+    UserExistenceFilterLock(DataSource dataSource, ConnectionOpener connectionOpener,
+                            UserExistenceFilter userExistenceFilter, UserControlProperties properties) {
+        this.dataSource = dataSource;
+        this.connectionOpener = connectionOpener;
+        this.userExistenceFilter = userExistenceFilter;
+        this.enabled = properties.getBloom().isEnabled();
+    }
+
+    /**
+     * Takes the lock on a connection kept until shutdown, failing the startup when another
+     * instance with the filters holds it.
+     */
+    @PostConstruct
+    public synchronized void acquire() throws SQLException {
+        if (!enabled || !DatabaseProduct.isPostgreSql(dataSource)) {
+            return;
+        }
+
+        Connection candidate = connectionOpener.open();
+        try {
+            if (!query(candidate, "SELECT pg_try_advisory_lock(?)")) {
+                throw new IllegalStateException("Another instance with usercontrol.bloom.enabled=true uses the database,"
+                        + " run a single one or disable the filters");
+            }
+        } catch (SQLException | RuntimeException e) {
+            candidate.close();
+            throw e;
+        }
+
+        connection = candidate;
+        log.info("User existence filter lock taken");
+    }
+
+    /**
+     * Disables the filters when the lock is no longer held, so another instance that took it
+     * meanwhile is not answered for by filters that miss its users.
+     */
+    @Scheduled(fixedDelayString = "${usercontrol.bloom.lock-check-interval:PT10S}",
+            initialDelayString = "${usercontrol.bloom.lock-check-interval:PT10S}")
+    public synchronized void check() {
+        if (Objects.isNull(connection)) {
+            return;
+        }
+
+        boolean held;
+        try {
+            held = query(connection, "SELECT EXISTS(SELECT 1 FROM pg_locks WHERE locktype = 'advisory'"
+                    + " AND pid = pg_backend_pid() AND granted AND mode = 'ExclusiveLock'"
+                    + " AND (classid::bigint << 32 | objid::bigint) = ?)");
+        } catch (SQLException e) {
+            log.error("User existence filter lock could not be checked -> {}", e.getMessage());
+            held = false;
+        }
+        if (!held) {
+            log.error("User existence filter lock lost, the filters are disabled until the instance restarts");
+            userExistenceFilter.disable();
+            closeQuietly();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        if (Objects.nonNull(connection)) {
+            // the session ends with the connection, and the lock with it
+            closeQuietly();
+        }
+    }
+
+    // opens the connection the lock is held on, outside the pool
+    interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+    //region private methods
+    private static boolean query(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("User existence filter lock connection could not be closed -> {}", e.getMessage());
+        }
+        connection = null;
+    }
+    //endregion
+}
@@ -0,0 +1,85 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.events.UserValidationEvent;
+import com.api.usercontrol.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Latency of each stage of the registration rules, published as the "usercontrol.validation"
+ * timer tagged by {@code stage}, with a percentile histogram. Together with the request, the
+ * repository and the connection pool timers it tells which part of a slow request took the time.
+ * Each stage is also added to the {@link ServerTiming} of the request, as {@code validation-<stage>}.
+ */
+@Component
+public class UserMetrics {
+    public enum Stage {
+        CPF("cpf", true),
+        CPF_TAKEN("cpf-taken", false),
+        AGE("age", false),
+        EMAIL("email", true),
+        EMAIL_TAKEN("email-taken", false);
+
+        private final String tag;
+        private final String serverTimingMetric;
+        private final boolean passedWhen;
+
+        /**
+         * @param passedWhen the result of the check when the user passes the stage
+         */
+        Stage(String tag, boolean passedWhen) {
+            this.tag = tag;
+            this.serverTimingMetric = "validation-" + tag;
+            this.passedWhen = passedWhen;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public String getServerTimingMetric() {
+            return serverTimingMetric;
+        }
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+
+    public UserMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("usercontrol.validation")
+                    .description("Time taken by a stage of the user registration rules")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    // the in-memory checks take microseconds, the ones asking the database milliseconds
+                    .minimumExpectedValue(Duration.ofNanos(1000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Runs the check of a stage for the user with the given CPF, timing it and recording it as a
+     * {@link UserValidationEvent} for the flight recorder.
+     */
+    public boolean time(Stage stage, String cpf, BooleanSupplier check) {
+        UserValidationEvent event = UserValidationEvent.begin(stage.getTag(), cpf);
+        long startTime = System.nanoTime();
+        Boolean passed = null;
+        try {
+            boolean result = check.getAsBoolean();
+            passed = result == stage.passedWhen;
+            return result;
+        } finally {
+            long duration = System.nanoTime() - startTime;
+            timers.get(stage).record(Duration.ofNanos(duration));
+            ServerTiming.record(stage.getServerTimingMetric(), duration);
+            event.finish(passed);
+        }
+    }
+}
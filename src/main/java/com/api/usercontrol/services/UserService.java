@@ -1,22 +1,50 @@
 package com.api.usercontrol.services;
 
+import com.api.usercontrol.configs.DatabaseSchemaInitializer;
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserCursorPageDto;
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.dto.UserField;
+import com.api.usercontrol.dto.UserLookupResultDto;
+import com.api.usercontrol.dto.UserUpdateResultDto;
+import com.api.usercontrol.events.UserOperationEvent;
 import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserConflictProbe;
 import com.api.usercontrol.repositories.UserRepository;
 import com.api.usercontrol.utils.Tools;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -28,93 +56,319 @@ public class UserService {
     private static final String USER_LEYEND_AGE_NOT_ADMITED = "Conflict: Only users over 18 years of age must be registered!";
     private static final String USER_LEYEND_EMAIL_IS_INVALID = "Conflict: This email is invalid!";
     private static final String USER_LEYEND_EMAIL_ALREADY_ASSIGNED = "Conflict: This email has been assigned another user!";
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserCountEstimator userCountEstimator;
+    private final UserMetrics userMetrics;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserCache userCache, UserExistenceFilter userExistenceFilter,
+                       UserCountEstimator userCountEstimator, UserMetrics userMetrics) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userExistenceFilter = userExistenceFilter;
+        this.userCountEstimator = userCountEstimator;
+        this.userMetrics = userMetrics;
     }
 
     @Transactional
     public UserModel save(UserModel userModel) {
-        try {
-            return userRepository.save(userModel);
-        } finally {
-            log.info("User saved -> cpf:{}", userModel.getCpf());
-        }
+        String operation = Objects.isNull(userModel.getVersion()) ? UserOperationEvent.CREATE : UserOperationEvent.UPDATE;
+        return UserOperationEvent.record(operation, userModel.getCpf(), () -> {
+            userExistenceFilter.add(userModel);
+            try {
+                return userRepository.save(userModel);
+            } finally {
+                userCache.invalidate(Collections.singletonList(userModel.getCpf()));
+                log.info("User saved -> cpf:{}", userModel.getCpf());
+            }
+        }, userModelSaved -> UserOperationEvent.SUCCESS);
     }
 
-    public boolean existsByCpf(String cpf) {
-        return userRepository.existsByCpf(cpf);
+    /**
+     * Registers a new user without asking the database for conflicts first: the rules that need no
+     * query are applied, the user is inserted, and a duplicate CPF or email rejected by the
+     * database constraints is reported with the same leyend as {@link #validateUser(UserModel, boolean)}.
+     * Not transactional, so the insert has been rolled back when a violation is mapped.
+     *
+     * @return the validation leyend, empty when the user was saved
+     */
+    public String insert(UserModel userModel) {
+        return UserOperationEvent.record(UserOperationEvent.CREATE, userModel.getCpf(), () -> insertUser(userModel),
+                UserService::outcome);
     }
 
-    public boolean existsByEmail(String email) {
-        return userRepository.existsByEmail(email);
+    /**
+     * Validates and inserts a chunk of new users in a single transaction, using one query per
+     * chunk to find the CPFs and emails already registered instead of one query per user, and
+     * none for the ones the {@link UserExistenceFilter} knows are not.
+     *
+     * @return the validation leyend of every user, in the same order; empty when it was saved
+     */
+    @Transactional
+    public List<String> saveAll(List<UserModel> userModelList) {
+        return UserOperationEvent.recordAll(UserOperationEvent.CREATE, userModelList.size(),
+                () -> saveUsers(userModelList), leyendList -> UserOperationEvent.SUCCESS);
     }
 
-    public List<UserModel> findUserByEmailAndCpfDiffersToGiven(String email, String cpf) {
-        List<UserModel> userModelList = userRepository.findUserByEmail(email);
-        return userModelList.stream()
-                .filter(x -> !cpf.equals(x.getCpf()))
-                .collect(Collectors.toList());
+    public boolean existsByCpf(String cpf) {
+        return userExistenceFilter.mightContainCpf(cpf) && userRepository.existsByCpf(cpf);
+    }
+
+    /**
+     * Compares the email lower-cased, as the unique index over EMAIL_NORMALIZED does.
+     */
+    public boolean existsByEmail(String email) {
+        return userExistenceFilter.mightContainEmail(email)
+                && userRepository.existsByEmailNormalized(email.toLowerCase(Locale.ROOT));
     }
 
     public Page<UserModel> findAll(Pageable pageable) {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * Returns a page of users that only tells whether there is a next one, without counting them.
+     */
+    public Slice<UserModel> findSlice(Pageable pageable) {
+        return userRepository.findAllBy(pageable);
+    }
+
+    /**
+     * Returns a page of users whose total is the {@link UserCountEstimator} estimate instead of a
+     * count. It is exact on the last page, and never less than the users already seen plus one
+     * while there is a next page.
+     */
+    public Page<UserModel> findAllEstimated(Pageable pageable) {
+        Slice<UserModel> slice = userRepository.findAllBy(pageable);
+        long seen = (pageable.isPaged() ? pageable.getOffset() : 0) + slice.getNumberOfElements();
+        long total = slice.hasNext() ? Math.max(userCountEstimator.estimate(), seen + 1) : seen;
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public Page<Map<String, Object>> findAllFields(List<UserField> fields, Pageable pageable) {
+        return userRepository.findAllFields(fields, pageable);
+    }
+
+    /**
+     * Returns the users that follow the cursor, asking for one extra row to know whether
+     * there is a next page instead of counting the table.
+     */
+    public UserCursorPageDto<UserModel> findPageAfter(UserCursor cursor, int size) {
+        List<UserModel> userModelList = userRepository.findPageAfter(cursor, size + 1);
+        if (userModelList.size() <= size) {
+            return new UserCursorPageDto<>(userModelList, size, null);
+        }
+
+        userModelList = userModelList.subList(0, size);
+        UserCursor nextCursor = UserCursor.after(cursor.getSortKey(), userModelList.get(size - 1));
+        return new UserCursorPageDto<>(userModelList, size, nextCursor.encode());
+    }
+
+    /**
+     * Hands every user, ordered by CPF, to the given consumer while the rows are read from a
+     * cursor, so the whole table is never held in memory.
+     */
+    @Transactional(readOnly = true)
+    public void forEachUser(int fetchSize, Consumer<UserModel> consumer) {
+        try (Stream<UserModel> userModelStream = userRepository.streamAll(fetchSize)) {
+            userModelStream.forEach(consumer);
+        }
+    }
+
     public List<UserModel> findByFirstNameContains(String firstName) {
-        return userRepository.findByFirstNameContains(firstName);
+        return userRepository.findByFirstNameSearchContains(Tools.normalizeForSearch(firstName));
     }
 
     public List<UserModel> findByLastNameContains(String lastName) {
-        return userRepository.findByLastNameContains(lastName);
+        return userRepository.findByLastNameSearchContains(Tools.normalizeForSearch(lastName));
+    }
+
+    public List<Map<String, Object>> findFieldsByFirstNameContains(List<UserField> fields, String firstName) {
+        return userRepository.findFieldsByContains(fields, "firstNameSearch", Tools.normalizeForSearch(firstName));
     }
 
+    public List<Map<String, Object>> findFieldsByLastNameContains(List<UserField> fields, String lastName) {
+        return userRepository.findFieldsByContains(fields, "lastNameSearch", Tools.normalizeForSearch(lastName));
+    }
+
+    /**
+     * Looks the user up through the {@link UserCache}; the user returned is a copy the caller may change.
+     */
     public Optional<UserModel> findByCpf(String cpf) {
-        return userRepository.findById(cpf);
+        return UserOperationEvent.record(UserOperationEvent.LOOKUP, cpf, () -> userCache.get(cpf, userRepository::findById),
+                userModel -> userModel.isPresent() ? UserOperationEvent.SUCCESS : UserOperationEvent.NOT_FOUND);
+    }
+
+    /**
+     * Looks many users up at once: the cached ones are served from the {@link UserCache}, the ones
+     * the {@link UserExistenceFilter} knows are not registered are never queried, and the rest are
+     * read with one IN query per chunk of CPFs.
+     *
+     * @param chunkSize CPFs bound per query, kept under the database's limit of bind parameters
+     */
+    public UserLookupResultDto findByCpfs(List<String> cpfs, int chunkSize) {
+        return UserOperationEvent.recordAll(UserOperationEvent.LOOKUP, cpfs.size(), () -> lookUpUsers(cpfs, chunkSize),
+                result -> UserOperationEvent.SUCCESS);
     }
 
+    /**
+     * Applies the fields present in the changes with a single UPDATE, without reading the user:
+     * null fields are left as they are, except the email, which is changed when it was sent.
+     * Only the rules of the changed fields are checked, querying for conflicts only when the
+     * email changes, and the user is only looked up when nothing was updated, to tell a missing
+     * user from one with another version. With no field to change nothing is written, but the
+     * expected version is still checked. It runs in a single transaction, so the new email is added
+     * again to the existence filters once committed, for a rebuild that scanned the row before.
+     *
+     * @param expectedVersion when not null, the user is only updated while it has this version
+     * @return when updated, the new version of the user, read back only without an expected version
+     */
     @Transactional
-    public void delete(UserModel userModel) {
-        try {
-            userRepository.delete(userModel);
-        } finally {
-            log.info("User deleted -> cpf:{}", userModel.getCpf());
-        }
+    public UserUpdateResultDto updateFields(String cpf, UserDto changes, Long expectedVersion) {
+        return UserOperationEvent.record(UserOperationEvent.UPDATE, cpf,
+                () -> updateUserFields(cpf, changes, expectedVersion), UserService::outcome);
+    }
+
+    /**
+     * Loads the user, applies the changes and every rule to it, and saves it in a single
+     * transaction, so the entity changed is the one loaded and its UPDATE needs no read before
+     * it. The changes are checked on a copy first: a rule querying the database would otherwise
+     * flush them before they are known to be valid.
+     *
+     * @param versionMatches whether the version of the user loaded meets the caller's precondition
+     * @param changes        applies the changes to a user
+     * @param constraints    the errors of the constraints a changed user breaks, empty when it has none
+     * @return when updated, the user as saved, with its new version
+     */
+    @Transactional
+    public UserUpdateResultDto update(String cpf, Predicate<Long> versionMatches, Consumer<UserModel> changes,
+                                      Function<UserModel, List<String>> constraints) {
+        return UserOperationEvent.record(UserOperationEvent.UPDATE, cpf,
+                () -> updateUser(cpf, versionMatches, changes, constraints), UserService::outcome);
+    }
+
+    /**
+     * Deletes the user with a single statement, without reading it first.
+     *
+     * @param expectedVersion when not null, the user is only deleted while it has this version
+     * @return the number of users deleted, 0 when the user does not exist or has another version
+     */
+    @Transactional
+    public int deleteByCpf(String cpf, Long expectedVersion) {
+        return UserOperationEvent.record(UserOperationEvent.DELETE, cpf, () -> {
+            int deleted;
+            try {
+                deleted = Objects.isNull(expectedVersion)
+                        ? userRepository.deleteByCpf(cpf)
+                        : userRepository.deleteByCpfAndVersion(cpf, expectedVersion);
+            } finally {
+                userCache.invalidate(Collections.singletonList(cpf));
+            }
+            if (deleted > 0) {
+                log.info("User deleted -> cpf:{}", cpf);
+            }
+            return deleted;
+        }, deleted -> deleted > 0 ? UserOperationEvent.SUCCESS : UserOperationEvent.NOT_FOUND);
+    }
+
+    /**
+     * Deletes a chunk of users with a single statement in its own transaction, so a long purge
+     * holds its locks one chunk at a time and the chunks already deleted stay deleted.
+     *
+     * @return the number of users deleted, which leaves out the CPFs not registered
+     */
+    @Transactional
+    public int deleteAll(List<String> cpfs) {
+        return deleteChunk(cpfs, () -> userRepository.deleteByCpfIn(cpfs));
+    }
+
+    /**
+     * Deletes a chunk of the CPFs found by {@link #findCpfsByFirstNameContainsAfter} like
+     * {@link #deleteAll(List)}, leaving the users whose firstName no longer matches the search text.
+     */
+    @Transactional
+    public int deleteAllByFirstNameContains(List<String> cpfs, String firstName) {
+        return deleteChunk(cpfs, () -> userRepository.deleteByContainsIn("firstNameSearch",
+                Tools.normalizeForSearch(firstName), cpfs));
+    }
+
+    /**
+     * Deletes a chunk of the CPFs found by {@link #findCpfsByLastNameContainsAfter} like
+     * {@link #deleteAll(List)}, leaving the users whose lastName no longer matches the search text.
+     */
+    @Transactional
+    public int deleteAllByLastNameContains(List<String> cpfs, String lastName) {
+        return deleteChunk(cpfs, () -> userRepository.deleteByContainsIn("lastNameSearch",
+                Tools.normalizeForSearch(lastName), cpfs));
+    }
+
+    public List<String> findCpfsByFirstNameContainsAfter(String firstName, String afterCpf, int limit) {
+        return userRepository.findCpfsByContainsAfter("firstNameSearch", Tools.normalizeForSearch(firstName),
+                afterCpf, limit);
+    }
+
+    public List<String> findCpfsByLastNameContainsAfter(String lastName, String afterCpf, int limit) {
+        return userRepository.findCpfsByContainsAfter("lastNameSearch", Tools.normalizeForSearch(lastName),
+                afterCpf, limit);
     }
 
+    /**
+     * Applies the registration rules, asking the database for the CPF and email conflicts in a
+     * single query, only once a rule needs them and the {@link UserExistenceFilter} cannot rule
+     * them out.
+     */
     public String validateUser(UserModel userModel, boolean isNewUser) {
+        UserConflictProbe[] probe = new UserConflictProbe[1];
+        Supplier<UserConflictProbe> conflicts = () -> {
+            if (Objects.isNull(probe[0])) {
+                // a null parameter has no type in a native query; the email flag is only read when there is one
+                probe[0] = userRepository.probeConflicts(userModel.getCpf(), Objects.toString(userModel.getEmail(), ""));
+            }
+            return probe[0];
+        };
+
+        return validateUser(userModel, isNewUser,
+                () -> userExistenceFilter.mightContainCpf(userModel.getCpf()) && conflicts.get().isCpfTaken(),
+                () -> userExistenceFilter.mightContainEmail(userModel.getEmail()) && conflicts.get().isEmailTaken());
+    }
+
+    /**
+     * Applies the registration rules in the same order as {@link #validateUser(UserModel, boolean)},
+     * taking the database checks from the caller. Each check is only asked for when the rules
+     * before it passed.
+     *
+     * @param cpfTaken   whether the CPF is registered already, only asked for new users
+     * @param emailTaken whether the email is assigned to another user
+     * @return the leyend of the first rule broken, or empty when the user is valid
+     */
+    public String validateUser(UserModel userModel, boolean isNewUser,
+                               BooleanSupplier cpfTaken, BooleanSupplier emailTaken) {
         String cpf = userModel.getCpf();
         if (isNewUser) {
-            if (!Tools.isValidCpf(cpf)) {
+            if (!userMetrics.time(UserMetrics.Stage.CPF, cpf, () -> Tools.isValidCpf(cpf))) {
                 return USER_LEYEND_INVALID_CPF;
             }
 
-            if (existsByCpf(cpf)) {
+            if (userMetrics.time(UserMetrics.Stage.CPF_TAKEN, cpf, cpfTaken)) {
                 return USER_LEYEND_CPF_EXISTS;
             }
         }
 
-        if (isUserAgeAllowed(userModel.getDateOfBirth())) {
+        if (userMetrics.time(UserMetrics.Stage.AGE, cpf, () -> isUserAgeAllowed(userModel.getDateOfBirth()))) {
             return USER_LEYEND_AGE_NOT_ADMITED;
         }
 
         var email = userModel.getEmail();
         if (Objects.nonNull(email)) {
-            if (!Tools.isValidEmail(email)) {
+            if (!userMetrics.time(UserMetrics.Stage.EMAIL, cpf, () -> Tools.isValidEmail(email))) {
                 return USER_LEYEND_EMAIL_IS_INVALID;
             }
 
-            if (isNewUser) {
-                if (existsByEmail(userModel.getEmail())) {
-                    return USER_LEYEND_EMAIL_ALREADY_ASSIGNED;
-                }
-            } else {
-                List<UserModel> userModelList = findUserByEmailAndCpfDiffersToGiven(email, cpf);
-                if (!userModelList.isEmpty()) {
-                    return USER_LEYEND_EMAIL_ALREADY_ASSIGNED;
-                }
+            if (userMetrics.time(UserMetrics.Stage.EMAIL_TAKEN, cpf, emailTaken)) {
+                return USER_LEYEND_EMAIL_ALREADY_ASSIGNED;
             }
         }
 
@@ -122,6 +376,22 @@ public class UserService {
     }
 
     //region private methods
+    // the primary key is the only other unique constraint of TB_USER
+    private String uniqueViolationLeyend(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            ConstraintViolationException violation = (ConstraintViolationException) e.getCause();
+            String constraintName = violation.getConstraintName();
+            if (Objects.nonNull(constraintName)
+                    && constraintName.toUpperCase(Locale.ROOT).contains(DatabaseSchemaInitializer.EMAIL_NORMALIZED_UNIQUE_INDEX)) {
+                return USER_LEYEND_EMAIL_ALREADY_ASSIGNED;
+            }
+            if (UNIQUE_VIOLATION_SQL_STATE.equals(violation.getSQLState())) {
+                return USER_LEYEND_CPF_EXISTS;
+            }
+        }
+        throw e;
+    }
+
     private boolean isUserAgeAllowed(Date dateOfBirth) {
         LocalDate currentDate = LocalDate.now();
         var period = Period.between(dateOfBirth.toLocalDate(), currentDate);
@@ -132,5 +402,225 @@ public class UserService {
 
         return false;
     }
+
+    private String insertUser(UserModel userModel) {
+        String leyend = validateUser(userModel, true, () -> false, () -> false);
+        if (!leyend.isEmpty()) {
+            return leyend;
+        }
+
+        userExistenceFilter.add(userModel);
+        try {
+            userRepository.insert(userModel);
+        } catch (DataIntegrityViolationException e) {
+            return uniqueViolationLeyend(e);
+        }
+        // committed by now, so a filter rebuild started meanwhile gets it too
+        userExistenceFilter.add(userModel);
+        userCache.invalidate(Collections.singletonList(userModel.getCpf()));
+        log.info("User saved -> cpf:{}", userModel.getCpf());
+        return "";
+    }
+
+    private List<String> saveUsers(List<UserModel> userModelList) {
+        Set<String> cpfs = userModelList.stream()
+                .map(UserModel::getCpf)
+                .filter(Objects::nonNull)
+                .filter(userExistenceFilter::mightContainCpf)
+                .collect(Collectors.toSet());
+        Set<String> emails = userModelList.stream()
+                .map(UserModel::getEmail)
+                .filter(Objects::nonNull)
+                .filter(userExistenceFilter::mightContainEmail)
+                .map(email -> email.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        Set<String> takenCpfs = cpfs.isEmpty() ? new HashSet<>() : new HashSet<>(userRepository.findCpfsIn(cpfs));
+        Set<String> takenEmails = emails.isEmpty() ? new HashSet<>() : new HashSet<>(userRepository.findEmailsIn(emails));
+
+        List<String> leyendList = new ArrayList<>(userModelList.size());
+        List<UserModel> userModelToSaveList = new ArrayList<>(userModelList.size());
+        for (UserModel userModel : userModelList) {
+            String leyend = validateUser(userModel, true,
+                    () -> takenCpfs.contains(userModel.getCpf()),
+                    () -> takenEmails.contains(userModel.getEmail().toLowerCase(Locale.ROOT)));
+
+            if (leyend.isEmpty()) {
+                // later records of the same chunk must conflict with this one
+                takenCpfs.add(userModel.getCpf());
+                if (Objects.nonNull(userModel.getEmail())) {
+                    takenEmails.add(userModel.getEmail().toLowerCase(Locale.ROOT));
+                }
+                userExistenceFilter.add(userModel);
+                userModelToSaveList.add(userModel);
+            }
+            leyendList.add(leyend);
+        }
+
+        try {
+            userRepository.persistAll(userModelToSaveList);
+        } finally {
+            userCache.invalidate(userModelToSaveList.stream().map(UserModel::getCpf).collect(Collectors.toList()));
+            log.info("Users saved -> count:{}", userModelToSaveList.size());
+        }
+
+        return leyendList;
+    }
+
+    private UserLookupResultDto lookUpUsers(List<String> cpfs, int chunkSize) {
+        Set<String> distinctCpfs = cpfs.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<String, UserModel> usersByCpf = userCache.getAll(distinctCpfs, cpfsToLoad -> {
+            List<String> cpfsToQuery = cpfsToLoad.stream()
+                    .filter(userExistenceFilter::mightContainCpf)
+                    .collect(Collectors.toList());
+            List<UserModel> userModelList = new ArrayList<>(cpfsToQuery.size());
+            for (int from = 0; from < cpfsToQuery.size(); from += chunkSize) {
+                userModelList.addAll(userRepository.findByCpfIn(
+                        cpfsToQuery.subList(from, Math.min(from + chunkSize, cpfsToQuery.size()))));
+            }
+            return userModelList;
+        });
+
+        List<UserModel> userModelList = new ArrayList<>(usersByCpf.size());
+        List<String> missingCpfs = new ArrayList<>();
+        for (String cpf : distinctCpfs) {
+            UserModel userModel = usersByCpf.get(cpf);
+            if (Objects.nonNull(userModel)) {
+                userModelList.add(userModel);
+            } else {
+                missingCpfs.add(cpf);
+            }
+        }
+        return new UserLookupResultDto(userModelList, missingCpfs);
+    }
+
+    private UserUpdateResultDto updateUserFields(String cpf, UserDto changes, Long expectedVersion) {
+        Map<String, Object> values = new HashMap<>();
+        if (Objects.nonNull(changes.getFirstName())) {
+            values.put("firstName", changes.getFirstName());
+            values.put("firstNameSearch", Tools.normalizeForSearch(changes.getFirstName()));
+        }
+        if (Objects.nonNull(changes.getLastName())) {
+            values.put("lastName", changes.getLastName());
+            values.put("lastNameSearch", Tools.normalizeForSearch(changes.getLastName()));
+        }
+        if (Objects.nonNull(changes.getDateOfBirth())) {
+            if (isUserAgeAllowed(changes.getDateOfBirth())) {
+                return UserUpdateResultDto.conflict(USER_LEYEND_AGE_NOT_ADMITED);
+            }
+            values.put("dateOfBirth", changes.getDateOfBirth());
+        }
+        String email = null;
+        if (Objects.nonNull(changes.getEmail()) && changes.getEmail().isPresent()) {
+            email = changes.getEmail().get();
+            if (Objects.nonNull(email)) {
+                if (!Tools.isValidEmail(email)) {
+                    return UserUpdateResultDto.conflict(USER_LEYEND_EMAIL_IS_INVALID);
+                }
+                if (userExistenceFilter.mightContainEmail(email)
+                        && userRepository.probeConflicts(cpf, email).isEmailTaken()) {
+                    return UserUpdateResultDto.conflict(USER_LEYEND_EMAIL_ALREADY_ASSIGNED);
+                }
+            }
+            values.put("email", email);
+            values.put("emailNormalized", Objects.isNull(email) ? null : email.toLowerCase(Locale.ROOT));
+        }
+
+        if (values.isEmpty()) {
+            // nothing to write, but the version is still checked against the expected one
+            Optional<Long> versionOptional = userRepository.findVersionByCpf(cpf);
+            if (!versionOptional.isPresent()) {
+                return UserUpdateResultDto.notFound();
+            }
+            return Objects.isNull(expectedVersion) || expectedVersion.equals(versionOptional.get())
+                    ? UserUpdateResultDto.updated(versionOptional.get()) : UserUpdateResultDto.modified();
+        }
+
+        userExistenceFilter.add(UserModel.builder().cpf(cpf).email(email).build());
+        Long version;
+        try {
+            version = userRepository.updateFields(cpf, values, expectedVersion);
+        } finally {
+            userCache.invalidate(Collections.singletonList(cpf));
+        }
+        if (Objects.isNull(version)) {
+            return Objects.nonNull(expectedVersion) && userRepository.existsById(cpf)
+                    ? UserUpdateResultDto.modified() : UserUpdateResultDto.notFound();
+        }
+
+        log.info("User updated -> cpf:{} fields:{}", cpf, values.keySet());
+        return UserUpdateResultDto.updated(version);
+    }
+
+    private UserUpdateResultDto updateUser(String cpf, Predicate<Long> versionMatches, Consumer<UserModel> changes,
+                                           Function<UserModel, List<String>> constraints) {
+        Optional<UserModel> userModelOptional = userRepository.findById(cpf);
+        if (!userModelOptional.isPresent()) {
+            return UserUpdateResultDto.notFound();
+        }
+
+        UserModel userModel = userModelOptional.get();
+        if (!versionMatches.test(userModel.getVersion())) {
+            return UserUpdateResultDto.modified();
+        }
+
+        UserModel userModelChanged = userModel.copy();
+        changes.accept(userModelChanged);
+        List<String> errors = constraints.apply(userModelChanged);
+        if (!errors.isEmpty()) {
+            return UserUpdateResultDto.invalid(errors);
+        }
+        String leyend = validateUser(userModelChanged, false);
+        if (!leyend.isEmpty()) {
+            return UserUpdateResultDto.conflict(leyend);
+        }
+
+        changes.accept(userModel);
+        userExistenceFilter.add(userModel);
+        try {
+            // flushed here so the new version is known, the user being managed it is not read again
+            userRepository.saveAndFlush(userModel);
+        } finally {
+            userCache.invalidate(Collections.singletonList(cpf));
+        }
+        log.info("User saved -> cpf:{}", cpf);
+        return UserUpdateResultDto.updated(userModel);
+    }
+
+    private int deleteChunk(List<String> cpfs, IntSupplier delete) {
+        if (cpfs.isEmpty()) {
+            return 0;
+        }
+        return UserOperationEvent.recordAll(UserOperationEvent.DELETE, cpfs.size(), () -> {
+            int deleted;
+            try {
+                deleted = delete.getAsInt();
+            } finally {
+                userCache.invalidate(cpfs);
+            }
+            log.info("Users deleted -> count:{}", deleted);
+            return deleted;
+        }, deleted -> UserOperationEvent.SUCCESS);
+    }
+
+    private static String outcome(String leyend) {
+        return leyend.isEmpty() ? UserOperationEvent.SUCCESS : UserOperationEvent.REJECTED;
+    }
+
+    private static String outcome(UserUpdateResultDto result) {
+        switch (result.getStatus()) {
+            case UPDATED:
+                return UserOperationEvent.SUCCESS;
+            case NOT_FOUND:
+                return UserOperationEvent.NOT_FOUND;
+            case MODIFIED:
+                return UserOperationEvent.MODIFIED;
+            default:
+                return UserOperationEvent.REJECTED;
+        }
+    }
     //endregion
 }
@@ -0,0 +1,120 @@
+package com.api.usercontrol.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings, safe for concurrent use: "not contained" answers are definitive,
+ * "might contain" ones are wrong with roughly the configured probability. Elements cannot be
+ * removed, so the filter has to be rebuilt to forget them.
+ */
+public final class BloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    /**
+     * @param expectedInsertions number of elements the filter is sized for
+     * @param falsePositiveRate  probability of a wrong "might contain" once those are inserted
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing -> expectedInsertions:"
+                    + expectedInsertions + " falsePositiveRate:" + falsePositiveRate);
+        }
+
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+    }
+
+    /**
+     * @return whether a bit changed, false meaning the element might have been added before
+     */
+    public boolean put(CharSequence value) {
+        long hash1 = hash(value, 0L);
+        long hash2 = hash(value, 0x9E3779B97F4A7C15L);
+
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            changed |= setBit(index(hash1, hash2, i));
+        }
+        return changed;
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash1 = hash(value, 0L);
+        long hash2 = hash(value, 0x9E3779B97F4A7C15L);
+
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = index(hash1, hash2, i);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Probability of a wrong "might contain" with the bits set so far.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitCount.get() / bitSize, hashFunctions);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public long memoryBytes() {
+        return bitSize / 8;
+    }
+
+    //region private methods
+    // double hashing (Kirsch-Mitzenmacher): the i-th function is hash1 + i * hash2
+    private long index(long hash1, long hash2, int i) {
+        long combined = hash1 + i * hash2;
+        return (combined & Long.MAX_VALUE) % bitSize;
+    }
+
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                bitCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // FNV-1a over the characters, finished with the MurmurHash3 64-bit mixer
+    private static long hash(CharSequence value, long seed) {
+        long hash = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    //endregion
+}
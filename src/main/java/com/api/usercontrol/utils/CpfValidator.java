@@ -0,0 +1,89 @@
+package com.api.usercontrol.utils;
+
+/**
+ * Validates CPFs in a single pass over the characters, skipping the '.', '-' and '/' of the
+ * formatted form inline, so no intermediate string is built.
+ */
+public final class CpfValidator {
+    /**
+     * Returned by {@link #pack(CharSequence)} when the CPF is not valid.
+     */
+    public static final long INVALID = -1L;
+
+    private static final int CPF_LENGTH = 11;
+
+    private CpfValidator() {
+    }
+
+    public static boolean isValid(CharSequence cpf) {
+        return pack(cpf) != INVALID;
+    }
+
+    /**
+     * Returns the eleven digits of a valid CPF as a number, a canonical key that is the same
+     * for its formatted and unformatted forms.
+     *
+     * @return the CPF digits, or {@link #INVALID} when the CPF is not valid
+     */
+    public static long pack(CharSequence cpf) {
+        if (cpf == null) {
+            return INVALID;
+        }
+
+        long packed = 0;
+        int digits = 0;
+        int firstDigit = -1;
+        boolean allDigitsEqual = true;
+        // the 1st check digit weights the first 9 digits from 10 to 2, the 2nd the first 10 from 11 to 2
+        int firstSum = 0;
+        int secondSum = 0;
+        int firstCheckDigit = 0;
+
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c == '.' || c == '-' || c == '/') {
+                continue;
+            }
+
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || digits == CPF_LENGTH) {
+                return INVALID;
+            }
+
+            if (digits == 0) {
+                firstDigit = digit;
+            } else if (digit != firstDigit) {
+                allDigitsEqual = false;
+            }
+
+            if (digits < 9) {
+                firstSum += digit * (10 - digits);
+            }
+            if (digits < 10) {
+                secondSum += digit * (11 - digits);
+            }
+            if (digits == 9) {
+                firstCheckDigit = digit;
+            }
+
+            packed = packed * 10 + digit;
+            digits++;
+        }
+
+        // CPF's formed by a sequence of equal digits pass the check digits but are not valid
+        if (digits != CPF_LENGTH || allDigitsEqual) {
+            return INVALID;
+        }
+
+        if (checkDigit(firstSum) != firstCheckDigit || checkDigit(secondSum) != (int) (packed % 10)) {
+            return INVALID;
+        }
+
+        return packed;
+    }
+
+    private static int checkDigit(int sum) {
+        int r = 11 - (sum % 11);
+        return r >= 10 ? 0 : r;
+    }
+}
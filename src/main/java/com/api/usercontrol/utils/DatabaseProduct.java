@@ -0,0 +1,42 @@
+package com.api.usercontrol.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells PostgreSQL, the production database, from the embedded ones the tests and local runs use,
+ * for the statements only PostgreSQL understands.
+ */
+public final class DatabaseProduct {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseProduct.class);
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private DatabaseProduct() {
+    }
+
+    /**
+     * @return false as well when the product cannot be read
+     */
+    public static boolean isPostgreSql(DataSource dataSource) {
+        try {
+            String productName = JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName");
+            return POSTGRESQL.equalsIgnoreCase(productName);
+        } catch (MetaDataAccessException e) {
+            log.warn("Database product could not be detected -> {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the product of a connection already open, without taking another from the pool.
+     */
+    public static boolean isPostgreSql(Connection connection) throws SQLException {
+        return POSTGRESQL.equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+}
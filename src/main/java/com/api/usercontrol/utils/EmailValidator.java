@@ -0,0 +1,104 @@
+package com.api.usercontrol.utils;
+
+import com.api.usercontrol.configs.Config;
+
+/**
+ * Hand-written matcher for the language of {@link Config#EMAIL_REGEXP_FORMAT}: the empty string,
+ * or a local part of {@code [a-zA-Z0-9._%+-]}, an '@', a domain of {@code [a-zA-Z0-9.-]} and,
+ * after its last '.', a top level domain of two letters or one of the listed names. It reads
+ * the characters once, with no backtracking and no allocation.
+ */
+public final class EmailValidator {
+    private static final String[] TOP_LEVEL_DOMAINS = {
+            "com", "org", "net", "edu", "gov", "mil", "biz", "info", "mobi", "name", "aero", "asia", "jobs", "museum"
+    };
+
+    private static final int LOCAL_PART = 0;
+    private static final int DOMAIN = 1;
+
+    private EmailValidator() {
+    }
+
+    /**
+     * Matches the email as {@code Pattern.compile(EMAIL_REGEXP_FORMAT)} does.
+     */
+    public static boolean isValid(CharSequence email) {
+        return isValid(email, false);
+    }
+
+    /**
+     * Matches the email as {@code Pattern.compile(EMAIL_REGEXP_FORMAT, Pattern.CASE_INSENSITIVE)} does,
+     * so the listed top level domains are accepted in any case.
+     */
+    public static boolean isValidIgnoreCase(CharSequence email) {
+        return isValid(email, true);
+    }
+
+    private static boolean isValid(CharSequence email, boolean ignoreCase) {
+        int length = email.length();
+        if (length == 0) {
+            return true;
+        }
+
+        int state = LOCAL_PART;
+        int at = -1;
+        int lastDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (state == LOCAL_PART) {
+                if (c == '@' && i > 0) {
+                    state = DOMAIN;
+                    at = i;
+                } else if (!isAlphanumeric(c) && c != '.' && c != '_' && c != '%' && c != '+' && c != '-') {
+                    return false;
+                }
+            } else if (c == '.') {
+                lastDot = i;
+            } else if (!isAlphanumeric(c) && c != '-') {
+                return false;
+            }
+        }
+
+        // the top level domain cannot hold a '.', so it starts after the last one
+        if (state != DOMAIN || lastDot <= at + 1) {
+            return false;
+        }
+
+        return isTopLevelDomain(email, lastDot + 1, length, ignoreCase);
+    }
+
+    private static boolean isTopLevelDomain(CharSequence email, int start, int end, boolean ignoreCase) {
+        int length = end - start;
+        if (length == 2) {
+            return isLetter(email.charAt(start)) && isLetter(email.charAt(start + 1));
+        }
+
+        for (String topLevelDomain : TOP_LEVEL_DOMAINS) {
+            if (topLevelDomain.length() == length && regionMatches(email, start, topLevelDomain, ignoreCase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence email, int start, String topLevelDomain, boolean ignoreCase) {
+        for (int i = 0; i < topLevelDomain.length(); i++) {
+            char c = email.charAt(start + i);
+            if (ignoreCase && c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != topLevelDomain.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,66 @@
+package com.api.usercontrol.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Time spent by the request served on the current thread, added up by stage and written as a
+ * Server-Timing header. The stages overlap: the repository time includes the connection wait, and
+ * the database checks of the validation include repository time.
+ * <p>
+ * Nothing is recorded on threads not serving a timed request, so the recording points cost a
+ * thread local lookup when the header is disabled.
+ */
+public final class ServerTiming {
+    public static final String HEADER = "Server-Timing";
+    public static final String DB_WAIT = "db-wait";
+    public static final String REPOSITORY = "repository";
+    public static final String MAPPING = "mapping";
+    public static final String JSON = "json";
+    public static final String TOTAL = "total";
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final ThreadLocal<ServerTiming> current = new ThreadLocal<>();
+
+    private final long startTime = System.nanoTime();
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    private ServerTiming() {
+    }
+
+    public static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        current.set(timing);
+        return timing;
+    }
+
+    public static void stop() {
+        current.remove();
+    }
+
+    public static void record(String metric, long nanos) {
+        ServerTiming timing = current.get();
+        if (timing != null) {
+            timing.durations.merge(metric, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * @return the stages recorded so far, in the order they first ran, followed by the time since
+     * the request started, e.g. {@code db-wait;dur=0.412, repository;dur=3.108, total;dur=5.250}
+     */
+    public String header() {
+        StringJoiner header = new StringJoiner(", ");
+        durations.forEach((metric, nanos) -> header.add(metric(metric, nanos)));
+        header.add(metric(TOTAL, System.nanoTime() - startTime));
+        return header.toString();
+    }
+
+    //region private methods
+    private static String metric(String metric, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.3f", metric, nanos / NANOS_PER_MILLI);
+    }
+    //endregion
+}
@@ -1,66 +1,16 @@
 package com.api.usercontrol.utils;
 
-import com.api.usercontrol.configs.Config;
-
+import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.InputMismatchException;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 public class Tools {
-    public static boolean isValidCpf(String cpf) {
-        cpf = removeCaracteresEspeciais(cpf);
-
-        // considera-se error CPF's formados por uma sequencia de numeros iguais
-        if (cpf.equals("00000000000") || cpf.equals("11111111111") || cpf.equals("22222222222") || cpf.equals("33333333333") || cpf.equals("44444444444") || cpf.equals("55555555555") || cpf.equals("66666666666") || cpf.equals("77777777777") || cpf.equals("88888888888") || cpf.equals("99999999999") || (cpf.length() != 11))
-            return (false);
-
-        char dig10, dig11;
-        int sm, i, r, num, peso;
-
-        // "try" - protege o codigo para eventuais erros de conversao de tipo (int)
-        try {
-            // Calculo do 1o. Digito Verificador
-            sm = 0;
-            peso = 10;
-            for (i = 0; i < 9; i++) {
-                // converte o i-esimo caractere do CPF em um numero:
-                // por exemplo, transforma o caractere '0' no inteiro 0
-                // (48 eh a posicao de '0' na tabela ASCII)
-                num = (int) (cpf.charAt(i) - 48);
-                sm = sm + (num * peso);
-                peso = peso - 1;
-            }
-
-            r = 11 - (sm % 11);
-            if ((r == 10) || (r == 11))
-                dig10 = '0';
-            else
-                dig10 = (char) (r + 48); // converte no respectivo caractere numerico
-
-            // Calculo do 2o. Digito Verificador
-            sm = 0;
-            peso = 11;
-            for (i = 0; i < 10; i++) {
-                num = (int) (cpf.charAt(i) - 48);
-                sm = sm + (num * peso);
-                peso = peso - 1;
-            }
+    private static final Pattern DIACRITICAL_MARKS = Pattern.compile("\\p{M}+");
 
-            r = 11 - (sm % 11);
-            if ((r == 10) || (r == 11))
-                dig11 = '0';
-            else
-                dig11 = (char) (r + 48);
-
-            // Verifica se os digitos calculados conferem com os digitos informados.
-            if ((dig10 == cpf.charAt(9)) && (dig11 == cpf.charAt(10)))
-                return (true);
-            else
-                return (false);
-        } catch (InputMismatchException error) {
-            return (false);
-        }
+    public static boolean isValidCpf(String cpf) {
+        return CpfValidator.isValid(cpf);
     }
 
     public static String removeCaracteresEspeciais(String doc) {
@@ -77,11 +27,19 @@ public class Tools {
     }
 
     public static boolean isValidEmail(String emailAddress) {
-        String regexPattern = Config.EMAIL_REGEXP_FORMAT;
+        return EmailValidator.isValid(emailAddress);
+    }
+
+    /**
+     * Lower-cases the text and strips its accents, so "João" and "joao" are searched the same way.
+     */
+    public static String normalizeForSearch(String text) {
+        if (text == null) {
+            return null;
+        }
 
-        return Pattern.compile(regexPattern)
-                .matcher(emailAddress)
-                .matches();
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICAL_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
     }
 
     public static LocalDateTime getLocalDateTime() {
@@ -0,0 +1,115 @@
+package com.api.usercontrol.utils;
+
+import com.api.usercontrol.configs.Config;
+import com.api.usercontrol.models.UserModel;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import java.util.Optional;
+
+public enum UserExportFormat {
+    NDJSON("application/x-ndjson") {
+        @Override
+        public UserWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            // the lines are separated by the new line alone, not by the default space between root values
+            generator.setRootValueSeparator(null);
+            return new UserWriter() {
+                @Override
+                public void write(UserModel userModel) throws IOException {
+                    generator.writeObject(userModel);
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    generator.close();
+                }
+            };
+        }
+    },
+    CSV("text/csv") {
+        @Override
+        public UserWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            return new UserWriter() {
+                @Override
+                public void write(UserModel userModel) throws IOException {
+                    writer.write(csvField(userModel.getCpf()));
+                    writer.write(',');
+                    writer.write(csvField(userModel.getFirstName()));
+                    writer.write(',');
+                    writer.write(csvField(userModel.getLastName()));
+                    writer.write(',');
+                    writer.write(Objects.isNull(userModel.getDateOfBirth()) ? "" : userModel.getDateOfBirth().toString());
+                    writer.write(',');
+                    writer.write(csvField(userModel.getEmail()));
+                    writer.write(',');
+                    writer.write(Objects.isNull(userModel.getRegistrationDate()) ? ""
+                            : CSV_DATETIME_FORMATTER.format(userModel.getRegistrationDate()));
+                    writer.write("\r\n");
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.close();
+                }
+            };
+        }
+    };
+
+    private static final String CSV_HEADER = "cpf,firstName,lastName,dateOfBirth,email,registrationDate\r\n";
+    private static final DateTimeFormatter CSV_DATETIME_FORMATTER = DateTimeFormatter.ofPattern(Config.DATETIME_FORMAT);
+
+    private final String contentType;
+
+    UserExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static Optional<UserExportFormat> of(String name) {
+        for (UserExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Starts writing users in this format to the given stream, one record per line.
+     */
+    public abstract UserWriter open(OutputStream outputStream, ObjectMapper objectMapper) throws IOException;
+
+    public interface UserWriter extends Closeable {
+        void write(UserModel userModel) throws IOException;
+    }
+
+    // RFC 4180: quote fields holding separators, quotes or line breaks, doubling the quotes
+    private static String csvField(String value) {
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,14 @@
+package com.api.usercontrol.validators;
+
+import com.api.usercontrol.utils.EmailValidator;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class EmailConstraintValidator implements ConstraintValidator<ValidEmail, CharSequence> {
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || EmailValidator.isValidIgnoreCase(value);
+    }
+}
@@ -0,0 +1,212 @@
+package com.api.usercontrol.controlllers;
+
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.mappers.UserMapper;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserReactiveRepository;
+import com.api.usercontrol.services.UserExistenceFilter;
+import com.api.usercontrol.services.UserService;
+import com.api.usercontrol.utils.Tools;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link UserController} for the reactive profile. Lookups and writes go
+ * through {@link UserReactiveRepository}, and the rules are the ones of {@link UserService},
+ * applied once the conflicts have been probed without blocking.
+ */
+@Component
+@Profile("reactive")
+public class UserHandler {
+    private final static int DEFAULT_PAGE_SIZE = 10;
+    private final static int MAX_PAGE_SIZE = 2000;
+
+    private final UserReactiveRepository userReactiveRepository;
+    private final UserService userService;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserMapper mapper;
+    private final Validator validator;
+
+    public UserHandler(UserReactiveRepository userReactiveRepository, UserService userService,
+                       UserExistenceFilter userExistenceFilter, UserMapper mapper, Validator validator) {
+        this.userReactiveRepository = userReactiveRepository;
+        this.userService = userService;
+        this.userExistenceFilter = userExistenceFilter;
+        this.mapper = mapper;
+        this.validator = validator;
+    }
+
+    public Mono<ServerResponse> saveUser(ServerRequest request) {
+        return request.bodyToMono(UserDto.class).flatMap(userDto -> {
+            List<String> errors = violations(userDto);
+            if (!errors.isEmpty()) {
+                return ServerResponse.badRequest().bodyValue(errors);
+            }
+
+            UserModel userModel = UserModel.builder()
+                    .cpf(userDto.getCpf())
+                    .firstName(userDto.getFirstName())
+                    .lastName(userDto.getLastName())
+                    .dateOfBirth(userDto.getDateOfBirth())
+                    .email(userDto.getEmailString())
+                    .version(0L)
+                    .build();
+            return validate(userModel, true).flatMap(leyend -> {
+                if (!leyend.isEmpty()) {
+                    return ServerResponse.status(HttpStatus.CONFLICT).bodyValue(leyend);
+                }
+
+                userModel.setRegistrationDate(Tools.getLocalDateTime());
+                userExistenceFilter.add(userModel);
+                return userReactiveRepository.insert(userModel)
+                        .then(ServerResponse.status(HttpStatus.CREATED)
+                                .eTag(UserController.eTag(userModel))
+                                .bodyValue(userModel));
+            });
+        });
+    }
+
+    public Mono<ServerResponse> getAllUsers(ServerRequest request) {
+        int page = Math.max(0, intParam(request, "page", 0));
+        int size = Math.max(1, Math.min(intParam(request, "size", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE));
+
+        // one extra row tells whether there is a next page, the table is never counted
+        return userReactiveRepository.findAll((long) page * size, size + 1)
+                .collectList()
+                .flatMap(userModelList -> ServerResponse.ok().bodyValue(new SliceImpl<>(
+                        userModelList.subList(0, Math.min(size, userModelList.size())),
+                        PageRequest.of(page, size, Sort.by("cpf")),
+                        userModelList.size() > size)));
+    }
+
+    public Mono<ServerResponse> getUser(ServerRequest request) {
+        String ifNoneMatch = request.headers().firstHeader(HttpHeaders.IF_NONE_MATCH);
+        return userReactiveRepository.findById(request.pathVariable("cpf"))
+                .flatMap(userModel -> {
+                    String eTag = UserController.eTag(userModel);
+                    if (UserController.eTagMatches(ifNoneMatch, eTag)) {
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                    }
+                    return ServerResponse.ok().eTag(eTag).bodyValue(userModel);
+                })
+                .switchIfEmpty(notFound());
+    }
+
+    public Mono<ServerResponse> getUserByFirstName(ServerRequest request) {
+        String firstName = request.queryParam("firstname").orElse("");
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(
+                userReactiveRepository.findByFirstNameSearchContains(Tools.normalizeForSearch(firstName)), UserModel.class);
+    }
+
+    public Mono<ServerResponse> getUserByLastName(ServerRequest request) {
+        String lastName = request.queryParam("lastname").orElse("");
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(
+                userReactiveRepository.findByLastNameSearchContains(Tools.normalizeForSearch(lastName)), UserModel.class);
+    }
+
+    public Mono<ServerResponse> deleteUser(ServerRequest request) {
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        return userReactiveRepository.findById(request.pathVariable("cpf"))
+                .flatMap(userModel -> {
+                    if (!IfMatch.parse(ifMatch).matches(userModel.getVersion())) {
+                        return modified(HttpStatus.PRECONDITION_FAILED);
+                    }
+                    return userReactiveRepository.delete(userModel).flatMap(deleted -> deleted == 0
+                            ? modifiedConcurrently(ifMatch)
+                            : ServerResponse.ok().bodyValue(UserController.LEYEND_USER_DELETED));
+                })
+                .switchIfEmpty(notFound());
+    }
+
+    public Mono<ServerResponse> updateUser(ServerRequest request) {
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        return request.bodyToMono(UserDto.class).flatMap(userDto -> userReactiveRepository
+                .findById(request.pathVariable("cpf"))
+                .flatMap(userModel -> {
+                    if (!IfMatch.parse(ifMatch).matches(userModel.getVersion())) {
+                        return modified(HttpStatus.PRECONDITION_FAILED);
+                    }
+                    mapper.update(userDto, userModel);
+
+                    List<String> errors = violations(UserDto.builder().build(userModel));
+                    if (!errors.isEmpty()) {
+                        return ServerResponse.status(HttpStatus.CONFLICT).bodyValue(errors);
+                    }
+
+                    return validate(userModel, false).flatMap(leyend -> {
+                        if (!leyend.isEmpty()) {
+                            return ServerResponse.status(HttpStatus.CONFLICT).bodyValue(leyend);
+                        }
+
+                        userExistenceFilter.add(userModel);
+                        return userReactiveRepository.update(userModel).flatMap(updated -> updated == 0
+                                ? modifiedConcurrently(ifMatch)
+                                : ServerResponse.ok()
+                                .eTag("\"" + (userModel.getVersion() + 1) + "\"")
+                                .bodyValue(userModel));
+                    });
+                })
+                .switchIfEmpty(notFound()));
+    }
+
+    //region private methods
+    // probes the conflicts only when the existence filter cannot rule them out
+    private Mono<String> validate(UserModel userModel, boolean isNewUser) {
+        boolean mightContainCpf = isNewUser && userExistenceFilter.mightContainCpf(userModel.getCpf());
+        boolean mightContainEmail = Objects.nonNull(userModel.getEmail())
+                && userExistenceFilter.mightContainEmail(userModel.getEmail());
+        if (!mightContainCpf && !mightContainEmail) {
+            return Mono.fromSupplier(() -> userService.validateUser(userModel, isNewUser, () -> false, () -> false));
+        }
+
+        return userReactiveRepository.probeConflicts(userModel.getCpf(), Objects.toString(userModel.getEmail(), ""))
+                .map(conflicts -> userService.validateUser(userModel, isNewUser,
+                        () -> mightContainCpf && conflicts.isCpfTaken(),
+                        () -> mightContainEmail && conflicts.isEmailTaken()));
+    }
+
+    private List<String> violations(UserDto userDto) {
+        Set<ConstraintViolation<UserDto>> constraintViolations = validator.validate(userDto);
+        return constraintViolations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    private Mono<ServerResponse> notFound() {
+        return Mono.defer(() -> ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue(UserController.LEYEND_USER_NOT_FOUND));
+    }
+
+    private Mono<ServerResponse> modified(HttpStatus status) {
+        return ServerResponse.status(status).bodyValue(UserController.LEYEND_USER_MODIFIED);
+    }
+
+    // a statement that touched no row lost the race against another writer
+    private Mono<ServerResponse> modifiedConcurrently(String ifMatch) {
+        return modified(Objects.isNull(ifMatch) ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private static int intParam(ServerRequest request, String name, int defaultValue) {
+        try {
+            return request.queryParam(name).map(Integer::parseInt).orElse(defaultValue);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    //endregion
+}
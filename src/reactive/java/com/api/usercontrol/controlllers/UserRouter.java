@@ -0,0 +1,34 @@
+package com.api.usercontrol.controlllers;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the reactive profile, the same paths {@link UserController} serves on the servlet stack.
+ */
+@Configuration
+@Profile("reactive")
+public class UserRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler) {
+        return route()
+                .path("/api", builder -> builder
+                        .POST("/user", contentType(MediaType.APPLICATION_JSON), userHandler::saveUser)
+                        .GET("/user/filter", queryParam("firstname", firstName -> true), userHandler::getUserByFirstName)
+                        .GET("/user/filter", queryParam("lastname", lastName -> true), userHandler::getUserByLastName)
+                        .GET("/user/{cpf}", userHandler::getUser)
+                        .GET("/user", userHandler::getAllUsers)
+                        .DELETE("/user/{cpf}", userHandler::deleteUser)
+                        .PUT("/user/{cpf}", userHandler::updateUser))
+                .build();
+    }
+}
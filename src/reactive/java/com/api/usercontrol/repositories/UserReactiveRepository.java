@@ -0,0 +1,163 @@
+package com.api.usercontrol.repositories;
+
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.utils.Tools;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Non-blocking counterpart of {@link UserRepository} for the reactive profile, issuing the same
+ * statements through R2DBC. The derived columns and the version are written here, as JPA is not
+ * involved.
+ */
+@Repository
+@Profile("reactive")
+public class UserReactiveRepository {
+    private static final String SELECT_USER = "SELECT CPF, FIRST_NAME, LAST_NAME, DATE_OF_BIRTH, EMAIL,"
+            + " REGISTRATION_DATE, VERSION FROM TB_USER";
+
+    private final DatabaseClient databaseClient;
+
+    public UserReactiveRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<UserModel> findById(String cpf) {
+        return databaseClient.sql(SELECT_USER + " WHERE CPF = :cpf")
+                .bind("cpf", cpf)
+                .map(UserReactiveRepository::toUserModel)
+                .one();
+    }
+
+    /**
+     * Reads the users ordered by CPF from the given offset, without counting them.
+     */
+    public Flux<UserModel> findAll(long offset, int limit) {
+        return databaseClient.sql(SELECT_USER + " ORDER BY CPF LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(UserReactiveRepository::toUserModel)
+                .all();
+    }
+
+    public Flux<UserModel> findByFirstNameSearchContains(String firstNameSearch) {
+        return findBySearchContains("FIRST_NAME_SEARCH", firstNameSearch);
+    }
+
+    public Flux<UserModel> findByLastNameSearchContains(String lastNameSearch) {
+        return findBySearchContains("LAST_NAME_SEARCH", lastNameSearch);
+    }
+
+    /**
+     * @see UserRepository#probeConflicts(String, String)
+     */
+    public Mono<UserConflictProbe> probeConflicts(String cpf, String email) {
+        return databaseClient.sql("SELECT EXISTS(SELECT 1 FROM TB_USER WHERE CPF = :cpf) AS CPF_TAKEN,"
+                        + " EXISTS(SELECT 1 FROM TB_USER WHERE EMAIL_NORMALIZED = LOWER(:email) AND CPF <> :cpf) AS EMAIL_TAKEN")
+                .bind("cpf", cpf)
+                .bind("email", email)
+                .map(row -> conflictProbe(Boolean.TRUE.equals(row.get("CPF_TAKEN", Boolean.class)),
+                        Boolean.TRUE.equals(row.get("EMAIL_TAKEN", Boolean.class))))
+                .one();
+    }
+
+    /**
+     * Inserts a new user at the first version.
+     */
+    public Mono<Void> insert(UserModel userModel) {
+        return bindColumns(databaseClient.sql("INSERT INTO TB_USER (CPF, FIRST_NAME, LAST_NAME, DATE_OF_BIRTH, EMAIL,"
+                        + " REGISTRATION_DATE, FIRST_NAME_SEARCH, LAST_NAME_SEARCH, EMAIL_NORMALIZED, VERSION)"
+                        + " VALUES (:cpf, :firstName, :lastName, :dateOfBirth, :email, :registrationDate,"
+                        + " :firstNameSearch, :lastNameSearch, :emailNormalized, 0)"), userModel)
+                .then();
+    }
+
+    /**
+     * Writes every column of the user and increments its version, while it has the version it was read with.
+     *
+     * @return the number of rows updated, 0 when the user does not exist or has another version
+     */
+    public Mono<Integer> update(UserModel userModel) {
+        return bindColumns(databaseClient.sql("UPDATE TB_USER SET FIRST_NAME = :firstName, LAST_NAME = :lastName,"
+                        + " DATE_OF_BIRTH = :dateOfBirth, EMAIL = :email, REGISTRATION_DATE = :registrationDate,"
+                        + " FIRST_NAME_SEARCH = :firstNameSearch, LAST_NAME_SEARCH = :lastNameSearch,"
+                        + " EMAIL_NORMALIZED = :emailNormalized, VERSION = VERSION + 1"
+                        + " WHERE CPF = :cpf AND VERSION = :version"), userModel)
+                .bind("version", userModel.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * @return the number of rows deleted, 0 when the user does not exist or has another version
+     */
+    public Mono<Integer> delete(UserModel userModel) {
+        return databaseClient.sql("DELETE FROM TB_USER WHERE CPF = :cpf AND VERSION = :version")
+                .bind("cpf", userModel.getCpf())
+                .bind("version", userModel.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    //region private methods
+    private Flux<UserModel> findBySearchContains(String column, String text) {
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return databaseClient.sql(SELECT_USER + " WHERE " + column + " LIKE :pattern ESCAPE '\\'")
+                .bind("pattern", pattern)
+                .map(UserReactiveRepository::toUserModel)
+                .all();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindColumns(DatabaseClient.GenericExecuteSpec spec,
+                                                                 UserModel userModel) {
+        String email = userModel.getEmail();
+        spec = spec.bind("cpf", userModel.getCpf())
+                .bind("firstName", userModel.getFirstName())
+                .bind("lastName", userModel.getLastName())
+                .bind("dateOfBirth", userModel.getDateOfBirth().toLocalDate())
+                .bind("registrationDate", userModel.getRegistrationDate())
+                .bind("firstNameSearch", Tools.normalizeForSearch(userModel.getFirstName()))
+                .bind("lastNameSearch", Tools.normalizeForSearch(userModel.getLastName()));
+        return Objects.isNull(email)
+                ? spec.bindNull("email", String.class).bindNull("emailNormalized", String.class)
+                : spec.bind("email", email).bind("emailNormalized", email.toLowerCase(Locale.ROOT));
+    }
+
+    private static UserModel toUserModel(Row row) {
+        LocalDate dateOfBirth = row.get("DATE_OF_BIRTH", LocalDate.class);
+        return UserModel.builder()
+                .cpf(row.get("CPF", String.class))
+                .firstName(row.get("FIRST_NAME", String.class))
+                .lastName(row.get("LAST_NAME", String.class))
+                .dateOfBirth(Objects.isNull(dateOfBirth) ? null : Date.valueOf(dateOfBirth))
+                .email(row.get("EMAIL", String.class))
+                .registrationDate(row.get("REGISTRATION_DATE", LocalDateTime.class))
+                .version(row.get("VERSION", Long.class))
+                .build();
+    }
+
+    private static UserConflictProbe conflictProbe(boolean cpfTaken, boolean emailTaken) {
+        return new UserConflictProbe() {
+            @Override
+            public boolean isCpfTaken() {
+                return cpfTaken;
+            }
+
+            @Override
+            public boolean isEmailTaken() {
+                return emailTaken;
+            }
+        };
+    }
+    //endregion
+}
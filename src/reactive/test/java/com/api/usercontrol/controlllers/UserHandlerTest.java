@@ -0,0 +1,178 @@
+package com.api.usercontrol.controlllers;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.mappers.UserMapper;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserConflictProbe;
+import com.api.usercontrol.repositories.UserReactiveRepository;
+import com.api.usercontrol.repositories.UserRepository;
+import com.api.usercontrol.services.UserCache;
+import com.api.usercontrol.services.UserCountEstimator;
+import com.api.usercontrol.services.UserExistenceFilter;
+import com.api.usercontrol.services.UserMetrics;
+import com.api.usercontrol.services.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openapitools.jackson.nullable.JsonNullableModule;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validation;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserHandlerTest {
+    private static final String NEW_USER_JSON = "{\"cpf\":\"52998224725\",\"firstName\":\"First Name\","
+            + "\"lastName\":\"Last Name\",\"dateOfBirth\":\"1989-01-01\",\"email\":\"email@fake.com\"}";
+
+    private UserReactiveRepository userReactiveRepositoryMock;
+    private UserExistenceFilter userExistenceFilterMock;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void setUp() {
+        userReactiveRepositoryMock = mock(UserReactiveRepository.class);
+        userExistenceFilterMock = mock(UserExistenceFilter.class);
+        UserService userService = new UserService(mock(UserRepository.class),
+                new UserCache(new UserControlProperties()), userExistenceFilterMock, mock(UserCountEstimator.class),
+                new UserMetrics(new SimpleMeterRegistry()));
+        UserHandler userHandler = new UserHandler(userReactiveRepositoryMock, userService, userExistenceFilterMock,
+                mock(UserMapper.class), Validation.buildDefaultValidatorFactory().getValidator());
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().registerModule(new JsonNullableModule());
+        webTestClient = WebTestClient.bindToRouterFunction(new UserRouter().userRoutes(userHandler))
+                .handlerStrategies(HandlerStrategies.builder().codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                }).build())
+                .build();
+    }
+
+    @Test
+    public void should_return_an_user_with_its_version_as_etag() {
+        when(userReactiveRepositoryMock.findById("52998224725")).thenReturn(Mono.just(user(3L)));
+
+        webTestClient.get().uri("/api/user/52998224725").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().jsonPath("$.cpf").isEqualTo("52998224725");
+    }
+
+    @Test
+    public void should_return_not_modified_when_the_user_matches_the_etag() {
+        when(userReactiveRepositoryMock.findById("52998224725")).thenReturn(Mono.just(user(3L)));
+
+        webTestClient.get().uri("/api/user/52998224725").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void should_return_not_found_when_the_user_does_not_exist() {
+        when(userReactiveRepositoryMock.findById("52998224725")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/user/52998224725").exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User not found");
+    }
+
+    @Test
+    public void should_return_a_slice_of_users_reading_one_more_to_know_whether_there_is_a_next_one() {
+        when(userReactiveRepositoryMock.findAll(2L, 3)).thenReturn(Flux.just(user(0L), user(0L), user(0L)));
+
+        webTestClient.get().uri("/api/user?page=1&size=2").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.last").isEqualTo(false);
+    }
+
+    @Test
+    public void should_save_an_user_without_probing_the_conflicts_the_filter_rules_out() {
+        when(userExistenceFilterMock.mightContainCpf("52998224725")).thenReturn(false);
+        when(userExistenceFilterMock.mightContainEmail("email@fake.com")).thenReturn(false);
+        when(userReactiveRepositoryMock.insert(any(UserModel.class))).thenReturn(Mono.empty());
+
+        webTestClient.post().uri("/api/user").contentType(MediaType.APPLICATION_JSON).bodyValue(NEW_USER_JSON)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"");
+
+        verify(userReactiveRepositoryMock, never()).probeConflicts(anyString(), anyString());
+        verify(userReactiveRepositoryMock).insert(any(UserModel.class));
+    }
+
+    @Test
+    public void should_not_save_an_user_whose_cpf_is_registered() {
+        UserConflictProbe conflicts = probe(true, false);
+        when(userExistenceFilterMock.mightContainCpf("52998224725")).thenReturn(true);
+        when(userExistenceFilterMock.mightContainEmail("email@fake.com")).thenReturn(false);
+        when(userReactiveRepositoryMock.probeConflicts("52998224725", "email@fake.com")).thenReturn(Mono.just(conflicts));
+
+        webTestClient.post().uri("/api/user").contentType(MediaType.APPLICATION_JSON).bodyValue(NEW_USER_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class).isEqualTo("Conflict: CPF exist already!");
+
+        verify(userReactiveRepositoryMock, never()).insert(any(UserModel.class));
+    }
+
+    @Test
+    public void should_not_update_an_user_modified_after_it_was_read() {
+        when(userReactiveRepositoryMock.findById("52998224725")).thenReturn(Mono.just(user(3L)));
+        when(userExistenceFilterMock.mightContainEmail("email@fake.com")).thenReturn(false);
+        when(userReactiveRepositoryMock.update(any(UserModel.class))).thenReturn(Mono.just(0));
+
+        webTestClient.put().uri("/api/user/52998224725").header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"firstName\":\"New First Name\"}")
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody(String.class).isEqualTo("User has been modified, fetch it again");
+    }
+
+    @Test
+    public void should_not_delete_an_user_when_it_does_not_match_the_etag() {
+        when(userReactiveRepositoryMock.findById("52998224725")).thenReturn(Mono.just(user(3L)));
+
+        webTestClient.delete().uri("/api/user/52998224725").header(HttpHeaders.IF_MATCH, "\"2\"").exchange()
+                .expectStatus().isEqualTo(412);
+
+        verify(userReactiveRepositoryMock, never()).delete(any(UserModel.class));
+    }
+
+    //region private methods
+    private static UserModel user(Long version) {
+        return UserModel.builder()
+                .cpf("52998224725")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .version(version)
+                .build();
+    }
+
+    private static UserConflictProbe probe(boolean cpfTaken, boolean emailTaken) {
+        UserConflictProbe probe = mock(UserConflictProbe.class);
+        when(probe.isCpfTaken()).thenReturn(cpfTaken);
+        when(probe.isEmailTaken()).thenReturn(emailTaken);
+        return probe;
+    }
+    //endregion
+}
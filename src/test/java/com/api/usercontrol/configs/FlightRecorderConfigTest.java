@@ -0,0 +1,127 @@
+package com.api.usercontrol.configs;
+
+import com.api.usercontrol.events.UserOperationEvent;
+import com.api.usercontrol.events.UserRepositoryEvent;
+import com.api.usercontrol.events.UserValidationEvent;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.services.UserCache;
+import com.api.usercontrol.services.UserService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:test-data.sql")
+@Sql(statements = "DELETE FROM TB_USER", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class FlightRecorderConfigTest {
+    private static final String CPF = "11111111101";
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserCache userCache;
+
+    @BeforeEach
+    public void setUp() {
+        userCache.invalidate(Collections.singletonList(CPF));
+    }
+
+    @Test
+    public void should_record_the_lookup_and_its_repository_call_with_the_cpf_hash() throws Exception {
+        List<RecordedEvent> events = record(() -> userService.findByCpf(CPF));
+
+        RecordedEvent lookup = only(events, UserOperationEvent.class);
+        assertEquals(UserOperationEvent.LOOKUP, lookup.getString("operation"));
+        assertEquals(UserOperationEvent.SUCCESS, lookup.getString("outcome"));
+        assertEquals(1, lookup.getInt("users"));
+        String cpfHash = lookup.getString("cpfHash");
+        assertNotNull(cpfHash);
+        assertNotEquals(CPF, cpfHash);
+
+        RecordedEvent findById = only(events, UserRepositoryEvent.class);
+        assertEquals("findById", findById.getString("method"));
+        assertEquals(UserRepositoryEvent.SUCCESS, findById.getString("outcome"));
+        assertEquals(cpfHash, findById.getString("cpfHash"));
+        assertTrue(lookup.getDuration().compareTo(findById.getDuration()) >= 0);
+    }
+
+    @Test
+    public void should_record_each_validation_stage_with_its_outcome() throws Exception {
+        UserModel userModel = UserModel.builder()
+                .cpf("52998224725")
+                .dateOfBirth(Date.valueOf("2010-01-01"))
+                .email("email@fake.com")
+                .build();
+
+        List<RecordedEvent> events = record(() -> userService.validateUser(userModel, true));
+
+        List<String> stages = events.stream()
+                .filter(event -> isA(event, UserValidationEvent.class))
+                .map(event -> event.getString("stage") + ":" + event.getString("outcome"))
+                .collect(Collectors.toList());
+        assertEquals(List.of("cpf:passed", "cpf-taken:passed", "age:failed"), stages);
+    }
+
+    @Test
+    public void should_record_the_deletes_of_several_users_without_their_cpfs() throws Exception {
+        List<RecordedEvent> events = record(() -> userService.deleteAll(List.of(CPF, "2222222202")));
+
+        RecordedEvent delete = only(events, UserOperationEvent.class);
+        assertEquals(UserOperationEvent.DELETE, delete.getString("operation"));
+        assertEquals(2, delete.getInt("users"));
+        assertNull(delete.getString("cpfHash"));
+        assertNull(only(events, UserRepositoryEvent.class).getString("cpfHash"));
+    }
+
+    //region private methods
+    private static List<RecordedEvent> record(Runnable action) throws Exception {
+        Path file = Files.createTempFile("usercontrol", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (Class<? extends jdk.jfr.Event> eventClass
+                    : List.of(UserOperationEvent.class, UserValidationEvent.class, UserRepositoryEvent.class)) {
+                recording.enable(eventClass).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, Class<? extends jdk.jfr.Event> eventClass) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> isA(event, eventClass))
+                .collect(Collectors.toList());
+        assertEquals(1, matching.size(), () -> eventClass.getSimpleName() + " events: " + matching);
+        return matching.get(0);
+    }
+
+    private static boolean isA(RecordedEvent event, Class<? extends jdk.jfr.Event> eventClass) {
+        return event.getEventType().getName().equals(eventClass.getAnnotation(jdk.jfr.Name.class).value());
+    }
+    //endregion
+}
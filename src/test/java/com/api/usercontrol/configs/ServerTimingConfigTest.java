@@ -0,0 +1,94 @@
+package com.api.usercontrol.configs;
+
+import com.api.usercontrol.services.UserCache;
+import com.api.usercontrol.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"usercontrol.timing.enabled=true", "usercontrol.bloom.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:test-data.sql")
+@Sql(statements = "DELETE FROM TB_USER", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ServerTimingConfigTest {
+    private static final String METRIC = "[a-z-]+;dur=\\d+\\.\\d{3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        userCache.invalidate(Collections.singletonList("11111111101"));
+    }
+
+    @Test
+    public void should_time_the_connection_wait_the_queries_and_the_serialization() throws Exception {
+        mockMvc.perform(get("/api/user/11111111101"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTiming.HEADER, allOf(
+                        matchesPattern(METRIC + "(, " + METRIC + ")*"),
+                        containsString("db-wait;dur="),
+                        containsString("repository;dur="),
+                        containsString("json;dur="),
+                        containsString("total;dur="))));
+    }
+
+    @Test
+    public void should_time_the_validation_stages() throws Exception {
+        mockMvc.perform(post("/api/user").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cpf\":\"52998224725\",\"firstName\":\"First Name\",\"lastName\":\"Last Name\","
+                                + "\"dateOfBirth\":\"1989-01-01\",\"email\":\"email@fake.com\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ServerTiming.HEADER, allOf(
+                        containsString("validation-cpf;dur="),
+                        containsString("validation-cpf-taken;dur="),
+                        containsString("validation-age;dur="),
+                        containsString("validation-email;dur="),
+                        containsString("validation-email-taken;dur="))));
+    }
+
+    @Test
+    public void should_time_the_mapping() throws Exception {
+        mockMvc.perform(put("/api/user/11111111101").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dateOfBirth\":\"1989-01-01\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTiming.HEADER, containsString("mapping;dur=")));
+    }
+
+    @Test
+    public void should_time_the_error_responses() throws Exception {
+        mockMvc.perform(get("/api/user/52998224725"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(ServerTiming.HEADER, containsString("total;dur=")));
+    }
+
+    @Test
+    public void should_still_publish_the_pool_metrics_of_the_wrapped_data_source() {
+        assertThat(meterRegistry.find("hikaricp.connections.max").gauge(), notNullValue());
+    }
+}
@@ -0,0 +1,33 @@
+package com.api.usercontrol.configs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadConfigTest {
+    private static final int VIRTUAL_THREADS_VERSION = 21;
+
+    @Test
+    public void should_run_the_tasks_on_virtual_threads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= VIRTUAL_THREADS_VERSION);
+        ExecutorService executor = new VirtualThreadConfig().virtualThreadExecutor();
+
+        Object isVirtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(Boolean.TRUE, isVirtual);
+        executor.shutdown();
+    }
+
+    @Test
+    public void should_fail_to_start_without_virtual_threads() {
+        assumeTrue(Runtime.version().feature() < VIRTUAL_THREADS_VERSION);
+
+        assertThrows(IllegalStateException.class, () -> new VirtualThreadConfig().virtualThreadExecutor());
+    }
+}
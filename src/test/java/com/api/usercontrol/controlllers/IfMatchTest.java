@@ -0,0 +1,48 @@
+package com.api.usercontrol.controlllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class IfMatchTest {
+
+    @Test
+    public void should_impose_nothing_when_absent_or_any() {
+        IfMatch absent = IfMatch.parse(null);
+        IfMatch any = IfMatch.parse(" * ");
+
+        assertThat(absent.isPresent(), is(false));
+        assertThat(absent.isConditional(), is(false));
+        assertThat(absent.matches(3L), is(true));
+        assertThat(any.isPresent(), is(true));
+        assertThat(any.isConditional(), is(false));
+        assertThat(any.matches(3L), is(true));
+    }
+
+    @Test
+    public void should_read_the_versions_of_a_list_of_strong_etags() {
+        IfMatch ifMatch = IfMatch.parse("\"1\", \"3\",\"7\"");
+
+        assertThat(ifMatch.isConditional(), is(true));
+        assertThat(ifMatch.versions(), is(Arrays.asList(1L, 3L, 7L)));
+        assertThat(ifMatch.matches(3L), is(true));
+        assertThat(ifMatch.matches(2L), is(false));
+    }
+
+    @Test
+    public void should_never_match_a_weak_or_malformed_etag() {
+        IfMatch weak = IfMatch.parse("W/\"2\"");
+        IfMatch mixed = IfMatch.parse("W/\"2\", \"a,b\", 4, \"5\"");
+        IfMatch unclosed = IfMatch.parse("\"2");
+
+        assertThat(weak.isConditional(), is(true));
+        assertThat(weak.versions(), is(Collections.emptyList()));
+        assertThat(weak.matches(2L), is(false));
+        assertThat(mixed.versions(), is(Collections.singletonList(5L)));
+        assertThat(unclosed.versions(), is(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,118 @@
+package com.api.usercontrol.controlllers;
+
+import com.api.usercontrol.services.UserCache;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that no connection is held while the response body is written, now that the entity
+ * manager is not kept open for the whole request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(UserControllerConnectionReleaseTest.SerializationProbe.class)
+@Sql(scripts = "classpath:test-data.sql")
+@Sql(statements = "DELETE FROM TB_USER", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class UserControllerConnectionReleaseTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private SerializationProbe serializationProbe;
+
+    @BeforeEach
+    public void setUp() {
+        userCache.invalidate(Collections.singletonList("11111111101"));
+        serializationProbe.activeConnections = -1;
+        serializationProbe.entityManagerOpen = true;
+    }
+
+    @Test
+    public void should_release_the_connection_before_writing_an_user() throws Exception {
+        mockMvc.perform(get("/api/user/11111111101")).andExpect(status().isOk());
+
+        assertReleased();
+    }
+
+    @Test
+    public void should_release_the_connection_before_writing_a_page_of_users() throws Exception {
+        mockMvc.perform(get("/api/user").param("size", "1")).andExpect(status().isOk());
+
+        assertReleased();
+    }
+
+    @Test
+    public void should_release_the_connection_before_writing_the_users_filtered() throws Exception {
+        mockMvc.perform(get("/api/user/filter").param("lastname", "name")).andExpect(status().isOk());
+
+        assertReleased();
+    }
+
+    //region private methods
+    private void assertReleased() {
+        assertEquals(0, serializationProbe.activeConnections);
+        assertFalse(serializationProbe.entityManagerOpen);
+    }
+
+    /**
+     * Looks at the pool and at the request's entity manager right before each body is written.
+     */
+    @ControllerAdvice
+    static class SerializationProbe implements ResponseBodyAdvice<Object> {
+        private final HikariDataSource dataSource;
+        private final EntityManagerFactory entityManagerFactory;
+        private volatile int activeConnections;
+        private volatile boolean entityManagerOpen;
+
+        SerializationProbe(DataSource dataSource, EntityManagerFactory entityManagerFactory) throws SQLException {
+            this.dataSource = dataSource.unwrap(HikariDataSource.class);
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        @Override
+        public boolean supports(@NonNull MethodParameter returnType,
+                                @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType,
+                                      @NonNull MediaType selectedContentType,
+                                      @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+            activeConnections = dataSource.getHikariPoolMXBean().getActiveConnections();
+            entityManagerOpen = TransactionSynchronizationManager.hasResource(entityManagerFactory);
+            return body;
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,298 @@
+package com.api.usercontrol.controlllers;
+
+import com.api.usercontrol.services.UserCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives every {@link UserController} endpoint against H2 and fails when a request runs more,
+ * or other, statements than its budget. The existence filters are disabled, so the budgets are
+ * the ones of the worst case, where every CPF and email might be registered.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.api.usercontrol.controlllers.UserControllerQueryBudgetTest$StatementCounter",
+        "spring.jpa.show-sql=false",
+        "usercontrol.bloom.enabled=false",
+        "usercontrol.delete.chunk-size=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:test-data.sql")
+@Sql(statements = "DELETE FROM TB_USER", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class UserControllerQueryBudgetTest {
+    private static final String NEW_USER_JSON = "{\"cpf\":\"52998224725\",\"firstName\":\"First Name\","
+            + "\"lastName\":\"Last Name\",\"dateOfBirth\":\"1989-01-01\",\"email\":\"email@fake.com\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserCache userCache;
+
+    @BeforeEach
+    public void setUp() {
+        userCache.invalidate(Arrays.asList("11111111101", "2222222202", "52998224725"));
+    }
+
+    @Test
+    public void should_save_an_user_with_one_conflict_query_and_one_insert() throws Exception {
+        assertBudget(post("/api/user").contentType(MediaType.APPLICATION_JSON).content(NEW_USER_JSON),
+                201, budget().selects(1).inserts(1));
+    }
+
+    @Test
+    public void should_save_a_batch_of_users_with_one_conflict_query_per_field_and_chunk() throws Exception {
+        assertBudget(post("/api/user/batch").contentType(MediaType.APPLICATION_JSON).content("[" + NEW_USER_JSON + "]"),
+                200, budget().selects(2).inserts(1));
+    }
+
+    @Test
+    public void should_look_users_up_with_one_query() throws Exception {
+        assertBudget(post("/api/user/lookup").contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"11111111101\", \"2222222202\", \"52998224725\"]"),
+                200, budget().selects(1));
+    }
+
+    @Test
+    public void should_return_a_page_of_users_with_one_query_and_one_count() throws Exception {
+        assertBudget(get("/api/user").param("size", "1"), 200, budget().selects(1).counts(1));
+        assertBudget(get("/api/user").param("size", "1").param("count", "exact"), 200, budget().selects(1).counts(1));
+    }
+
+    @Test
+    public void should_return_the_last_page_of_users_without_counting_them() throws Exception {
+        assertBudget(get("/api/user"), 200, budget().selects(1));
+    }
+
+    @Test
+    public void should_return_a_page_of_users_without_counting_them() throws Exception {
+        assertBudget(get("/api/user").param("count", "none"), 200, budget().selects(1));
+        assertBudget(get("/api/user").param("after", ""), 200, budget().selects(1));
+    }
+
+    @Test
+    public void should_return_a_page_of_users_with_an_estimated_total_without_counting_them() throws Exception {
+        assertBudget(get("/api/user").param("size", "1").param("count", "estimated"), 200, budget().selects(1));
+    }
+
+    @Test
+    public void should_return_the_fields_of_a_page_of_users_with_one_query_and_one_count() throws Exception {
+        assertBudget(get("/api/user").param("size", "1").param("fields", "cpf,firstName"), 200,
+                budget().selects(1).counts(1));
+    }
+
+    @Test
+    public void should_export_the_users_with_one_query() throws Exception {
+        assertBudget(get("/api/user/export"), 200, budget().selects(1));
+    }
+
+    @Test
+    public void should_return_an_user_with_one_query_and_then_from_the_cache() throws Exception {
+        assertBudget(get("/api/user/11111111101"), 200, budget().selects(1));
+        assertBudget(get("/api/user/11111111101"), 200, budget());
+    }
+
+    @Test
+    public void should_filter_the_users_with_one_query() throws Exception {
+        assertBudget(get("/api/user/filter").param("firstname", "name"), 200, budget().selects(1));
+        assertBudget(get("/api/user/filter").param("lastname", "name"), 200, budget().selects(1));
+        assertBudget(get("/api/user/filter").param("firstname", "name").param("fields", "cpf"), 200, budget().selects(1));
+        assertBudget(get("/api/user/filter").param("lastname", "name").param("fields", "cpf"), 200, budget().selects(1));
+    }
+
+    @Test
+    public void should_delete_an_user_with_one_statement() throws Exception {
+        assertBudget(delete("/api/user/11111111101"), 200, budget().deletes(1));
+        assertBudget(delete("/api/user/11111111101"), 404, budget().deletes(1));
+    }
+
+    @Test
+    public void should_delete_an_user_matching_the_etag_with_one_statement() throws Exception {
+        assertBudget(delete("/api/user/11111111101").header(HttpHeaders.IF_MATCH, "\"0\""), 200, budget().deletes(1));
+    }
+
+    @Test
+    public void should_delete_a_list_of_users_with_one_statement_per_chunk() throws Exception {
+        assertBudget(delete("/api/user").contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"11111111101\", \"2222222202\"]"),
+                200, budget().deletes(2));
+    }
+
+    @Test
+    public void should_delete_the_users_matching_a_filter_with_one_query_and_one_statement_per_chunk() throws Exception {
+        assertBudget(delete("/api/user").param("lastname", "one"), 200, budget().selects(3).deletes(2));
+    }
+
+    // one read of the user and one of the email conflicts, the user read being the one saved
+    @Test
+    public void should_update_an_user_with_one_read_one_email_check_and_one_update() throws Exception {
+        assertBudget(put("/api/user/11111111101").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dateOfBirth\":\"1989-01-01\",\"email\":\"new_email@fake.com\"}"),
+                200, budget().selects(2).updates(1));
+    }
+
+    @Test
+    public void should_update_the_fields_sent_matching_the_etag_with_one_statement() throws Exception {
+        assertBudget(put("/api/user/11111111101").header("Prefer", "return=minimal").header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"New First Name\"}"),
+                204, budget().updates(1));
+    }
+
+    @Test
+    public void should_update_the_fields_sent_with_one_statement_among_other_preferences() throws Exception {
+        assertBudget(put("/api/user/11111111101").header("Prefer", "return=minimal, handling=lenient")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"New First Name\"}"),
+                204, budget().updates(1));
+    }
+
+    // without an expected version, the new one is read back for the ETag
+    @Test
+    public void should_update_the_fields_sent_with_one_statement_and_one_read() throws Exception {
+        assertBudget(put("/api/user/11111111101").header("Prefer", "return=minimal")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"firstName\":\"New First Name\"}"),
+                204, budget().selects(1).updates(1));
+    }
+
+    //region private methods
+    private void assertBudget(RequestBuilder request, int expectedStatus, Budget expected) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        StatementCounter.clear();
+
+        mockMvc.perform(request).andExpect(status().is(expectedStatus));
+
+        assertThat(StatementCounter.budget(), is(expected));
+        assertThat(statistics.getPrepareStatementCount(), is((long) expected.total()));
+    }
+
+    private static Budget budget() {
+        return new Budget();
+    }
+
+    private static final class Budget {
+        private int selects;
+        private int counts;
+        private int inserts;
+        private int updates;
+        private int deletes;
+
+        private Budget selects(int selects) {
+            this.selects = selects;
+            return this;
+        }
+
+        private Budget counts(int counts) {
+            this.counts = counts;
+            return this;
+        }
+
+        private Budget inserts(int inserts) {
+            this.inserts = inserts;
+            return this;
+        }
+
+        private Budget updates(int updates) {
+            this.updates = updates;
+            return this;
+        }
+
+        private Budget deletes(int deletes) {
+            this.deletes = deletes;
+            return this;
+        }
+
+        private int total() {
+            return selects + counts + inserts + updates + deletes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Budget)) {
+                return false;
+            }
+            Budget budget = (Budget) o;
+            return selects == budget.selects && counts == budget.counts && inserts == budget.inserts
+                    && updates == budget.updates && deletes == budget.deletes;
+        }
+
+        @Override
+        public int hashCode() {
+            return total();
+        }
+
+        @Override
+        public String toString() {
+            return "selects:" + selects + " counts:" + counts + " inserts:" + inserts + " updates:" + updates
+                    + " deletes:" + deletes;
+        }
+    }
+
+    /**
+     * Counts the statements Hibernate prepares, by kind, as it is handed each one.
+     */
+    public static class StatementCounter implements StatementInspector {
+        private static final AtomicInteger selects = new AtomicInteger();
+        private static final AtomicInteger counts = new AtomicInteger();
+        private static final AtomicInteger inserts = new AtomicInteger();
+        private static final AtomicInteger updates = new AtomicInteger();
+        private static final AtomicInteger deletes = new AtomicInteger();
+
+        @Override
+        public String inspect(String sql) {
+            String statement = sql.trim().toLowerCase(Locale.ROOT);
+            if (statement.startsWith("select")) {
+                (statement.startsWith("select count(") ? counts : selects).incrementAndGet();
+            } else if (statement.startsWith("insert")) {
+                inserts.incrementAndGet();
+            } else if (statement.startsWith("update")) {
+                updates.incrementAndGet();
+            } else if (statement.startsWith("delete")) {
+                deletes.incrementAndGet();
+            }
+            return sql;
+        }
+
+        private static void clear() {
+            selects.set(0);
+            counts.set(0);
+            inserts.set(0);
+            updates.set(0);
+            deletes.set(0);
+        }
+
+        private static Budget budget() {
+            return new Budget().selects(selects.get()).counts(counts.get()).inserts(inserts.get())
+                    .updates(updates.get()).deletes(deletes.get());
+        }
+    }
+    //endregion
+}
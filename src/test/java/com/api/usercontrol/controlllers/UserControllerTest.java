@@ -1,9 +1,17 @@
 package com.api.usercontrol.controlllers;
 
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserCursorPageDto;
 import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.dto.UserField;
+import com.api.usercontrol.dto.UserLookupResultDto;
+import com.api.usercontrol.dto.UserUpdateResultDto;
 import com.api.usercontrol.mappers.UserMapper;
 import com.api.usercontrol.models.UserModel;
 import com.api.usercontrol.services.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.internal.engine.ValidatorFactoryImpl;
 import org.hibernate.validator.internal.engine.ValidatorImpl;
@@ -14,32 +22,46 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.openapitools.jackson.nullable.JsonNullable;
+import org.powermock.reflect.internal.WhiteboxImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -51,6 +73,9 @@ public class UserControllerTest {
     private UserService userServiceMock;
     @Autowired
     private UserMapper mapper;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private UserControlProperties properties;
     private ValidatorFactoryImpl validatorFactoryImpMock;
     private ValidatorImpl validatorImpMock;
     private static MockedStatic<Validation> validationMock;
@@ -63,7 +88,9 @@ public class UserControllerTest {
         validatorImpMock = mock(ValidatorImpl.class);
         validationMock = Mockito.mockStatic(Validation.class);
 
-        userController = new UserController(userServiceMock, mapper);
+        properties = new UserControlProperties();
+
+        userController = new UserController(userServiceMock, mapper, objectMapper, properties);
     }
 
     @AfterEach
@@ -113,6 +140,38 @@ public class UserControllerTest {
         assertThat(responseEntity.getStatusCodeValue(), is(201));
     }
 
+    @Test
+    public void should_insert_an_user_straight_away_when_the_optimistic_insert_is_enabled() {
+        UserDto userDto = UserDto.builder()
+                .cpf("1234567890")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1999, 12, 31)))
+                .email(JsonNullable.of("updated@fake.com"))
+                .build();
+
+        properties.getRegistration().setOptimisticInsert(true);
+        ArgumentCaptor<UserModel> userModelArgumentCaptor = ArgumentCaptor.forClass(UserModel.class);
+        when(userServiceMock.insert(any(UserModel.class)))
+                .thenReturn(StringUtils.EMPTY)
+                .thenReturn("Conflict: CPF exist already!");
+
+        ResponseEntity<Object> createdResponse = userController.saveUser(userDto);
+        ResponseEntity<Object> conflictResponse = userController.saveUser(userDto);
+
+        verify(userServiceMock, times(2)).insert(userModelArgumentCaptor.capture());
+
+        UserModel userModelInserted = userModelArgumentCaptor.getAllValues().get(0);
+
+        assertThat(userModelInserted.getCpf(), is("1234567890"));
+        assertThat(userModelInserted.getEmail(), is("updated@fake.com"));
+        assertThat(userModelInserted.getRegistrationDate(), notNullValue());
+        assertThat(createdResponse.getStatusCodeValue(), is(201));
+        assertThat(createdResponse.getBody(), is(userModelInserted));
+        assertThat(conflictResponse.getStatusCodeValue(), is(409));
+        assertThat(conflictResponse.getBody(), is("Conflict: CPF exist already!"));
+    }
+
     @Test
     public void should_not_save_an_user_when_exists_conflicts() {
         UserDto userDto = UserDto.builder()
@@ -141,6 +200,179 @@ public class UserControllerTest {
         assertThat(responseEntity.getStatusCodeValue(), is(409));
     }
 
+    @Test
+    public void should_save_a_batch_of_users_in_chunks_and_return_the_result_of_each_one() throws Exception {
+        properties.getBatch().setSize(2);
+        String body = "[" +
+                "{\"cpf\":\"1234567890\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}," +
+                "{\"cpf\":\"0987654321\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}," +
+                "{\"cpf\":\"\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}" +
+                "]";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ConstraintViolation<UserDto> constraintViolationMock = mock(ConstraintViolation.class);
+        Set<ConstraintViolation<UserDto>> constraintViolationsMock = new HashSet<>();
+        constraintViolationsMock.add(constraintViolationMock);
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validate(any(UserDto.class))).thenAnswer(invocation ->
+                ((UserDto) invocation.getArgument(0)).getCpf().isEmpty() ? constraintViolationsMock : new HashSet<>());
+        when(constraintViolationMock.getMessage()).thenReturn("must not be blank");
+        when(userServiceMock.saveAll(anyList())).thenReturn(Arrays.asList(StringUtils.EMPTY, "There are conflicts"));
+
+        userController.saveUsers(request, response);
+
+        ArgumentCaptor<List<UserModel>> userModelListArgumentCaptor = ArgumentCaptor.forClass(List.class);
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock, times(3)).validate(any(UserDto.class));
+        verify(userServiceMock, times(1)).saveAll(userModelListArgumentCaptor.capture());
+
+        List<UserModel> userModelSavedList = userModelListArgumentCaptor.getValue();
+        assertThat(userModelSavedList.size(), is(2));
+        assertThat(userModelSavedList.get(0).getCpf(), is("1234567890"));
+        assertThat(userModelSavedList.get(0).getRegistrationDate(), notNullValue());
+
+        JsonNode results = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus(), is(200));
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).get("status").asText(), is("CREATED"));
+        assertThat(results.get(1).get("status").asText(), is("CONFLICT"));
+        assertThat(results.get(1).get("reason").asText(), is("There are conflicts"));
+        assertThat(results.get(2).get("index").asInt(), is(2));
+        assertThat(results.get(2).get("status").asText(), is("CONFLICT"));
+    }
+
+    @Test
+    public void should_report_the_batch_elements_that_are_not_users_and_go_on_with_the_rest() throws Exception {
+        properties.getBatch().setSize(2);
+        String body = "[" +
+                "{\"cpf\":\"1234567890\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}," +
+                "42," +
+                "[{\"cpf\":\"1111111111\"}]," +
+                "{\"cpf\":\"0987654321\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}" +
+                "]";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(new HashSet<>());
+        when(userServiceMock.saveAll(anyList())).thenReturn(Collections.singletonList(StringUtils.EMPTY));
+
+        userController.saveUsers(request, response);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock, times(2)).validate(any(UserDto.class));
+        verify(userServiceMock, times(2)).saveAll(anyList());
+
+        JsonNode results = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus(), is(200));
+        assertThat(results.size(), is(4));
+        assertThat(results.get(0).get("status").asText(), is("CREATED"));
+        assertThat(results.get(1).get("status").asText(), is("INVALID"));
+        assertThat(results.get(2).get("index").asInt(), is(2));
+        assertThat(results.get(2).get("status").asText(), is("INVALID"));
+        assertThat(results.get(3).get("cpf").asText(), is("0987654321"));
+        assertThat(results.get(3).get("status").asText(), is("CREATED"));
+    }
+
+    @Test
+    public void should_reject_a_batch_when_the_array_is_not_closed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("[{\"cpf\":\"1234567890\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+
+        userController.saveUsers(request, response);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        assertThat(response.getStatus(), is(400));
+    }
+
+    @Test
+    public void should_report_the_rest_of_a_batch_unsaved_when_the_array_breaks_after_the_first_chunk() throws Exception {
+        properties.getBatch().setSize(1);
+        String body = "[" +
+                "{\"cpf\":\"1234567890\",\"firstName\":\"First\",\"lastName\":\"Last\",\"dateOfBirth\":\"1989-01-01\"}," +
+                "{\"cpf\":";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(new HashSet<>());
+        when(userServiceMock.saveAll(anyList())).thenReturn(Collections.singletonList(StringUtils.EMPTY));
+
+        userController.saveUsers(request, response);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock).validate(any(UserDto.class));
+        verify(userServiceMock).saveAll(anyList());
+
+        JsonNode results = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus(), is(200));
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).get("status").asText(), is("CREATED"));
+        assertThat(results.get(1).get("index").asInt(), is(1));
+        assertThat(results.get(1).get("status").asText(), is("INVALID"));
+    }
+
+    @Test
+    public void should_reject_a_batch_when_the_body_is_not_an_array() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+
+        userController.saveUsers(request, response);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        assertThat(response.getStatus(), is(400));
+    }
+
+    @Test
+    public void should_look_users_up_in_chunks_of_the_configured_size() {
+        UserModel userModel = UserModel.builder()
+                .cpf("1234567890")
+                .firstName("First Name")
+                .build();
+        List<String> cpfs = Arrays.asList("1234567890", "0987654321");
+        UserLookupResultDto lookupResult = new UserLookupResultDto(Arrays.asList(userModel), Arrays.asList("0987654321"));
+        properties.getLookup().setChunkSize(500);
+
+        when(userServiceMock.findByCpfs(cpfs, 500)).thenReturn(lookupResult);
+
+        ResponseEntity<Object> responseEntity = userController.lookupUsers(cpfs);
+
+        verify(userServiceMock).findByCpfs(cpfs, 500);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(lookupResult));
+    }
+
+    @Test
+    public void should_reject_a_lookup_of_more_cpfs_than_allowed() {
+        properties.getLookup().setMaxSize(1);
+
+        ResponseEntity<Object> responseEntity = userController.lookupUsers(Arrays.asList("1234567890", "0987654321"));
+
+        assertThat(responseEntity.getStatusCodeValue(), is(400));
+        assertThat(responseEntity.getBody(), is("Too many CPFs, look up at most 1 at a time"));
+    }
+
     @Test
     public void should_return_an_page_of_userModel_records() {
         UserModel userModel = UserModel.builder()
@@ -168,12 +400,113 @@ public class UserControllerTest {
         assertThat(returnedPageContentList.size(), is(1));
     }
 
+    @Test
+    public void should_return_the_first_keyset_page_when_the_cursor_is_empty() {
+        UserCursorPageDto<UserModel> page = new UserCursorPageDto<>(new ArrayList<>(), 5, null);
+        ArgumentCaptor<UserCursor> cursorArgumentCaptor = ArgumentCaptor.forClass(UserCursor.class);
+
+        when(userServiceMock.findPageAfter(any(UserCursor.class), eq(5))).thenReturn(page);
+
+        ResponseEntity<Object> responseEntity = userController.getUsersAfter("", 5, "lastName");
+
+        verify(userServiceMock).findPageAfter(cursorArgumentCaptor.capture(), eq(5));
+        assertThat(cursorArgumentCaptor.getValue().isStart(), is(true));
+        assertThat(cursorArgumentCaptor.getValue().getSortKey(), is(UserCursor.SortKey.LAST_NAME));
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(page));
+    }
+
+    @Test
+    public void should_return_the_keyset_page_after_the_given_cursor() {
+        UserModel last = UserModel.builder().cpf("1234567890").firstName("Old First Name").build();
+        String token = UserCursor.after(UserCursor.SortKey.FIRST_NAME, last).encode();
+        ArgumentCaptor<UserCursor> cursorArgumentCaptor = ArgumentCaptor.forClass(UserCursor.class);
+
+        when(userServiceMock.findPageAfter(any(UserCursor.class), eq(10)))
+                .thenReturn(new UserCursorPageDto<>(new ArrayList<>(), 10, null));
+
+        ResponseEntity<Object> responseEntity = userController.getUsersAfter(token, 10, "cpf");
+
+        verify(userServiceMock).findPageAfter(cursorArgumentCaptor.capture(), eq(10));
+        assertThat(cursorArgumentCaptor.getValue().getSortKey(), is(UserCursor.SortKey.FIRST_NAME));
+        assertThat(cursorArgumentCaptor.getValue().getValue(), is("Old First Name"));
+        assertThat(cursorArgumentCaptor.getValue().getCpf(), is("1234567890"));
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+    }
+
+    @Test
+    public void should_not_return_a_keyset_page_when_the_cursor_is_invalid() {
+        ResponseEntity<Object> responseEntity = userController.getUsersAfter("not a cursor", 10, "cpf");
+        ResponseEntity<Object> responseEntityBySortKey = userController.getUsersAfter("", 10, "email");
+
+        assertThat(responseEntity.getStatusCodeValue(), is(400));
+        assertThat(responseEntityBySortKey.getStatusCodeValue(), is(400));
+    }
+
+    @Test
+    public void should_export_all_users_as_csv_while_they_are_read() throws Exception {
+        UserModel userModel = UserModel.builder()
+                .cpf("1234567890")
+                .firstName("First, Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        doAnswer(invocation -> {
+            Consumer<UserModel> consumer = invocation.getArgument(1);
+            consumer.accept(userModel);
+            return null;
+        }).when(userServiceMock).forEachUser(anyInt(), any());
+
+        userController.exportUsers("CSV", response);
+
+        verify(userServiceMock).forEachUser(eq(1000), any());
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getContentType(), is("text/csv;charset=UTF-8"));
+        assertThat(response.getContentAsString(), is("cpf,firstName,lastName,dateOfBirth,email,registrationDate\r\n" +
+                "1234567890,\"First, Name\",Last Name,1998-12-31,,2022-09-15T01:01:01Z\r\n"));
+    }
+
+    @Test
+    public void should_export_all_users_as_ndjson_by_default() throws Exception {
+        UserModel userModel = UserModel.builder().cpf("1234567890").build();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        doAnswer(invocation -> {
+            Consumer<UserModel> consumer = invocation.getArgument(1);
+            consumer.accept(userModel);
+            consumer.accept(userModel);
+            return null;
+        }).when(userServiceMock).forEachUser(anyInt(), any());
+
+        userController.exportUsers("ndjson", response);
+
+        verify(userServiceMock).forEachUser(eq(1000), any());
+        String[] lines = response.getContentAsString().split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(objectMapper.readTree(lines[1]).get("cpf").asText(), is("1234567890"));
+        String line = objectMapper.writeValueAsString(userModel);
+        assertThat(lines[1], is(line));
+        assertThat(response.getContentAsByteArray(), is((line + "\n" + line + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void should_not_export_users_when_the_format_is_not_supported() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        userController.exportUsers("xml", response);
+
+        assertThat(response.getStatus(), is(400));
+    }
+
     @Test
     public void should_return_an_userModel_when_find_user_by_cpf_and_exists() {
         UserModel userModel = UserModel.builder().build();
         when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
 
-        ResponseEntity<Object> responseEntity = userController.getUser("1234567890");
+        ResponseEntity<Object> responseEntity = userController.getUser("1234567890", null);
 
         verify(userServiceMock).findByCpf("1234567890");
         assertThat(responseEntity.getStatusCodeValue(), is(200));
@@ -183,13 +516,377 @@ public class UserControllerTest {
     public void should_return_an_userModel_when_find_user_by_cpf_and_not_exists() {
         when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.ofNullable(null));
 
-        ResponseEntity<Object> responseEntity = userController.getUser("1234567890");
+        ResponseEntity<Object> responseEntity = userController.getUser("1234567890", null);
 
         verify(userServiceMock).findByCpf("1234567890");
         assertThat(responseEntity.getStatusCodeValue(), is(404));
         assertThat(responseEntity.getBody(), is("User not found"));
     }
 
+    @Test
+    public void should_return_the_version_of_the_user_as_its_etag() {
+        UserModel userModel = UserModel.builder().build();
+        WhiteboxImpl.setInternalState(userModel, "version", 3L);
+        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
+
+        ResponseEntity<Object> responseEntity = userController.getUser("1234567890", "\"2\"");
+
+        verify(userServiceMock).findByCpf("1234567890");
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getHeaders().getETag(), is("\"3\""));
+        assertThat(responseEntity.getBody(), is(userModel));
+    }
+
+    @Test
+    public void should_return_not_modified_without_body_when_the_user_matches_the_etag() {
+        UserModel userModel = UserModel.builder().build();
+        WhiteboxImpl.setInternalState(userModel, "version", 3L);
+        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
+
+        ResponseEntity<Object> strongResponseEntity = userController.getUser("1234567890", "\"2\", \"3\"");
+        ResponseEntity<Object> weakResponseEntity = userController.getUser("1234567890", "W/\"3\"");
+
+        verify(userServiceMock, times(2)).findByCpf("1234567890");
+        assertThat(strongResponseEntity.getStatusCodeValue(), is(304));
+        assertThat(strongResponseEntity.getHeaders().getETag(), is("\"3\""));
+        assertThat(strongResponseEntity.getBody(), is(nullValue()));
+        assertThat(weakResponseEntity.getStatusCodeValue(), is(304));
+    }
+
+    @Test
+    public void should_not_delete_an_user_when_it_does_not_match_the_etag() {
+        when(userServiceMock.deleteByCpf("1234567890", 2L)).thenReturn(0);
+        when(userServiceMock.existsByCpf("1234567890")).thenReturn(true);
+
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", "\"2\"");
+
+        verify(userServiceMock).deleteByCpf("1234567890", 2L);
+        verify(userServiceMock).existsByCpf("1234567890");
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_delete_an_user_whose_current_version_is_among_the_etags_listed() {
+        UserModel userModel = UserModel.builder().cpf("1234567890").build();
+        WhiteboxImpl.setInternalState(userModel, "version", 2L);
+        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
+        when(userServiceMock.deleteByCpf("1234567890", 2L)).thenReturn(1);
+
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", "\"1\", W/\"3\", \"2\"");
+
+        verify(userServiceMock).findByCpf("1234567890");
+        verify(userServiceMock).deleteByCpf("1234567890", 2L);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+    }
+
+    @Test
+    public void should_not_delete_an_user_whose_current_version_is_not_among_the_etags_listed() {
+        UserModel userModel = UserModel.builder().cpf("1234567890").build();
+        WhiteboxImpl.setInternalState(userModel, "version", 4L);
+        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
+
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", "\"1\", \"2\"");
+
+        verify(userServiceMock).findByCpf("1234567890");
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_delete_an_user_without_reading_it_when_a_single_strong_etag_is_listed_among_weak_ones() {
+        when(userServiceMock.deleteByCpf("1234567890", 2L)).thenReturn(1);
+
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", "W/\"1\", \"2\"");
+        ResponseEntity<Object> weakResponseEntity = userController.deleteUser("1234567890", "W/\"2\"");
+
+        verify(userServiceMock).deleteByCpf("1234567890", 2L);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(weakResponseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_delete_an_user_that_exists_when_any_etag_matches() {
+        when(userServiceMock.deleteByCpf("1234567890", null)).thenReturn(1);
+
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", "*");
+
+        verify(userServiceMock).deleteByCpf("1234567890", null);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+    }
+
+    @Test
+    public void should_delete_the_users_of_a_list_of_cpfs_in_chunks_and_report_each_one() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("[\"1111111111\", \"2222222222\", \"3333333333\"]".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        properties.getDelete().setChunkSize(2);
+
+        when(userServiceMock.deleteAll(Arrays.asList("1111111111", "2222222222"))).thenReturn(2);
+        when(userServiceMock.deleteAll(Arrays.asList("3333333333"))).thenReturn(0);
+
+        userController.deleteUsers(request, response);
+
+        verify(userServiceMock).deleteAll(Arrays.asList("1111111111", "2222222222"));
+        verify(userServiceMock).deleteAll(Arrays.asList("3333333333"));
+        JsonNode result = objectMapper.readTree(response.getContentAsString());
+        assertThat(response.getStatus(), is(200));
+        assertThat(result.get("chunks").size(), is(2));
+        assertThat(result.get("chunks").get(1).get("cpfs").asInt(), is(1));
+        assertThat(result.get("chunks").get(1).get("deleted").asInt(), is(0));
+        assertThat(result.get("deleted").asLong(), is(2L));
+    }
+
+    @Test
+    public void should_not_delete_any_user_when_the_list_has_an_element_that_is_not_a_cpf() throws Exception {
+        properties.getDelete().setChunkSize(1);
+
+        for (String body : Arrays.asList("[\"1111111111\", [\"2222222222\"]]", "[\"1111111111\", {\"cpf\":\"2222222222\"}]",
+                "[\"1111111111\", 2222222222]", "[\"1111111111\", \"2222222222\"", "{\"cpfs\":[\"1111111111\"]}",
+                "[\"1111111111\"] [\"2222222222\"]")) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            userController.deleteUsers(request, response);
+
+            assertThat(body, response.getStatus(), is(400));
+            assertThat(response.getErrorMessage(), is("The request body must be a JSON array of CPF strings"));
+        }
+    }
+
+    @Test
+    public void should_delete_the_users_matching_a_filter_walking_it_after_the_last_cpf_deleted() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        properties.getDelete().setChunkSize(2);
+
+        when(userServiceMock.findCpfsByFirstNameContainsAfter("name", null, 2))
+                .thenReturn(Arrays.asList("1111111111", "2222222222"));
+        when(userServiceMock.findCpfsByFirstNameContainsAfter("name", "2222222222", 2))
+                .thenReturn(new ArrayList<>());
+        when(userServiceMock.deleteAllByFirstNameContains(Arrays.asList("1111111111", "2222222222"), "name"))
+                .thenReturn(2);
+
+        userController.deleteUsersByFirstName("name", response);
+
+        verify(userServiceMock).findCpfsByFirstNameContainsAfter("name", null, 2);
+        verify(userServiceMock).findCpfsByFirstNameContainsAfter("name", "2222222222", 2);
+        verify(userServiceMock).deleteAllByFirstNameContains(Arrays.asList("1111111111", "2222222222"), "name");
+        assertThat(objectMapper.readTree(response.getContentAsString()).get("deleted").asLong(), is(2L));
+    }
+
+    @Test
+    public void should_not_delete_the_users_matching_an_empty_filter() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        userController.deleteUsersByLastName(" ", response);
+
+        assertThat(response.getStatus(), is(400));
+    }
+
+    @Test
+    public void should_not_update_an_user_when_it_does_not_match_the_etag() {
+        ArgumentCaptor<Predicate<Long>> versionMatchesCaptor = ArgumentCaptor.forClass(Predicate.class);
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenReturn(UserUpdateResultDto.modified());
+
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", "\"2\"",
+                UserDto.builder().firstName("New First Name").build());
+
+        verify(userServiceMock).update(eq("1234567890"), versionMatchesCaptor.capture(), any(), any());
+        assertThat(versionMatchesCaptor.getValue().test(3L), is(false));
+        assertThat(versionMatchesCaptor.getValue().test(2L), is(true));
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_not_update_an_user_when_the_etag_is_weak() {
+        ArgumentCaptor<Predicate<Long>> versionMatchesCaptor = ArgumentCaptor.forClass(Predicate.class);
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenReturn(UserUpdateResultDto.modified());
+
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", "W/\"3\"",
+                UserDto.builder().firstName("New First Name").build());
+
+        verify(userServiceMock).update(eq("1234567890"), versionMatchesCaptor.capture(), any(), any());
+        assertThat(versionMatchesCaptor.getValue().test(3L), is(false));
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_not_update_an_user_modified_after_it_was_read() {
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(UserModel.class, "1234567890"));
+
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", "\"3\"",
+                UserDto.builder().firstName("New First Name").build());
+
+        verify(userServiceMock).update(eq("1234567890"), any(), any(), any());
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+        assertThat(responseEntity.getBody(), is("User has been modified, fetch it again"));
+    }
+
+    @Test
+    public void should_update_only_the_fields_sent_without_body_when_minimal_return_is_preferred() {
+        UserDto userDto = UserDto.builder()
+                .firstName("New First Name")
+                .email(JsonNullable.of("new_email@fake.com"))
+                .build();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validateProperty(eq(userDto), any(String.class))).thenReturn(new HashSet<>());
+        when(userServiceMock.updateFields("1234567890", userDto, 3L)).thenReturn(UserUpdateResultDto.updated(4L));
+
+        ResponseEntity<Object> responseEntity = userController.updateUserFields("1234567890", "\"3\"", "return=minimal", userDto);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock).validateProperty(userDto, "firstName");
+        verify(validatorImpMock).validateProperty(userDto, "email");
+        verify(userServiceMock).updateFields("1234567890", userDto, 3L);
+        assertThat(responseEntity.getStatusCodeValue(), is(204));
+        assertThat(responseEntity.getHeaders().getETag(), is("\"4\""));
+        assertThat(responseEntity.getHeaders().getFirst("Preference-Applied"), is("return=minimal"));
+        assertThat(responseEntity.getBody(), is(nullValue()));
+    }
+
+    @Test
+    public void should_not_update_the_fields_sent_when_the_user_has_another_version() {
+        UserDto userDto = UserDto.builder().lastName("New Last Name").build();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validateProperty(userDto, "lastName")).thenReturn(new HashSet<>());
+        when(userServiceMock.updateFields("1234567890", userDto, 2L)).thenReturn(UserUpdateResultDto.modified());
+
+        ResponseEntity<Object> responseEntity = userController.updateUserFields("1234567890", "\"2\"", "return=minimal", userDto);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock).validateProperty(userDto, "lastName");
+        verify(userServiceMock).updateFields("1234567890", userDto, 2L);
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+        assertThat(responseEntity.getBody(), is("User has been modified, fetch it again"));
+    }
+
+    @Test
+    public void should_not_update_the_fields_sent_when_the_etag_is_not_a_version() {
+        ResponseEntity<Object> responseEntity = userController.updateUserFields("1234567890", "W/\"2\"", "return=minimal",
+                UserDto.builder().lastName("New Last Name").build());
+
+        assertThat(responseEntity.getStatusCodeValue(), is(412));
+    }
+
+    @Test
+    public void should_update_only_the_fields_sent_when_minimal_return_is_among_the_preferences() {
+        UserDto userDto = UserDto.builder().lastName("New Last Name").build();
+
+        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
+        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
+        when(validatorImpMock.validateProperty(userDto, "lastName")).thenReturn(new HashSet<>());
+        when(userServiceMock.updateFields("1234567890", userDto, null)).thenReturn(UserUpdateResultDto.updated(1L));
+
+        ResponseEntity<Object> responseEntity = userController.updateUserFields("1234567890", null,
+                "respond-async, RETURN = \"minimal\"; foo=bar, handling=lenient", userDto);
+
+        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
+        verify(validatorFactoryImpMock).getValidator();
+        verify(validatorImpMock).validateProperty(userDto, "lastName");
+        verify(userServiceMock).updateFields("1234567890", userDto, null);
+        assertThat(responseEntity.getStatusCodeValue(), is(204));
+    }
+
+    @Test
+    public void should_update_the_whole_user_when_minimal_return_is_not_among_the_preferences() {
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenReturn(UserUpdateResultDto.notFound());
+
+        ResponseEntity<Object> responseEntity = userController.updateUserFields("1234567890", null,
+                "return=representation, handling=lenient", UserDto.builder().lastName("New Last Name").build());
+
+        verify(userServiceMock).update(eq("1234567890"), any(), any(), any());
+        assertThat(responseEntity.getStatusCodeValue(), is(404));
+    }
+
+    @Test
+    public void should_return_a_slice_of_users_when_they_must_not_be_counted() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Slice<UserModel> slice = new SliceImpl<>(new ArrayList<>(), pageRequest, false);
+
+        when(userServiceMock.findSlice(pageRequest)).thenReturn(slice);
+
+        ResponseEntity<Object> responseEntity = userController.getAllUsersCounting("none", pageRequest);
+
+        verify(userServiceMock).findSlice(pageRequest);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(slice));
+    }
+
+    @Test
+    public void should_return_a_page_of_users_with_an_estimated_total() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<UserModel> page = new PageImpl<>(new ArrayList<>(), pageRequest, 0);
+
+        when(userServiceMock.findAllEstimated(pageRequest)).thenReturn(page);
+
+        ResponseEntity<Object> responseEntity = userController.getAllUsersCounting("Estimated", pageRequest);
+
+        verify(userServiceMock).findAllEstimated(pageRequest);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(page));
+    }
+
+    @Test
+    public void should_not_return_the_users_when_the_count_mode_is_not_supported() {
+        ResponseEntity<Object> responseEntity = userController.getAllUsersCounting("approximate", PageRequest.of(0, 10));
+
+        assertThat(responseEntity.getStatusCodeValue(), is(400));
+    }
+
+    @Test
+    public void should_return_a_page_with_only_the_given_fields_of_the_users() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<Map<String, Object>> page = new PageImpl<>(new ArrayList<>());
+        List<UserField> fields = Arrays.asList(UserField.CPF, UserField.FIRST_NAME);
+
+        when(userServiceMock.findAllFields(fields, pageRequest)).thenReturn(page);
+
+        ResponseEntity<Object> responseEntity = userController.getAllUserFields("cpf, firstName,cpf", pageRequest);
+
+        verify(userServiceMock).findAllFields(fields, pageRequest);
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(page));
+    }
+
+    @Test
+    public void should_not_return_the_users_when_a_field_is_not_allowed() {
+        ResponseEntity<Object> responseEntity = userController.getAllUserFields("cpf,version", PageRequest.of(0, 10));
+
+        assertThat(responseEntity.getStatusCodeValue(), is(400));
+    }
+
+    @Test
+    public void should_return_only_the_given_fields_of_the_users_found_by_firstName() {
+        List<Map<String, Object>> users = new ArrayList<>();
+
+        when(userServiceMock.findFieldsByFirstNameContains(Collections.singletonList(UserField.CPF), "name"))
+                .thenReturn(users);
+
+        ResponseEntity<Object> responseEntity = userController.getUserFieldsByFirstName("name", "cpf");
+
+        verify(userServiceMock).findFieldsByFirstNameContains(Collections.singletonList(UserField.CPF), "name");
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+    }
+
+    @Test
+    public void should_return_only_the_given_fields_of_the_users_found_by_lastName() {
+        List<Map<String, Object>> users = new ArrayList<>();
+
+        when(userServiceMock.findFieldsByLastNameContains(Collections.singletonList(UserField.EMAIL), "name"))
+                .thenReturn(users);
+
+        ResponseEntity<Object> responseEntity = userController.getUserFieldsByLastName("name", "email");
+
+        verify(userServiceMock).findFieldsByLastNameContains(Collections.singletonList(UserField.EMAIL), "name");
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+    }
+
     @Test
     public void should_return_a_list_with_userModel_records_when_find_user_by_firstName() {
         List<UserModel> userModelList = new ArrayList<>();
@@ -215,26 +912,23 @@ public class UserControllerTest {
     }
 
     @Test
-    public void should_delete_an_user_when_find_user_by_cpf_and_exists() {
-        UserModel userModel = UserModel.builder().build();
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        doNothing().when(userServiceMock).delete(userModel);
+    public void should_delete_an_user_with_a_single_statement_when_it_exists() {
+        when(userServiceMock.deleteByCpf("1234567890", null)).thenReturn(1);
 
-        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890");
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", null);
 
-        verify(userServiceMock).findByCpf("1234567890");
-        verify(userServiceMock).delete(userModel);
+        verify(userServiceMock).deleteByCpf("1234567890", null);
         assertThat(responseEntity.getStatusCodeValue(), is(200));
         assertThat(responseEntity.getBody(), is("User has been deleted"));
     }
 
     @Test
-    public void should_not_delete_an_user_when_find_user_by_cpf_and_this_not_exists() {
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.ofNullable(null));
+    public void should_not_delete_an_user_when_no_user_has_the_cpf() {
+        when(userServiceMock.deleteByCpf("1234567890", null)).thenReturn(0);
 
-        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890");
+        ResponseEntity<Object> responseEntity = userController.deleteUser("1234567890", null);
 
-        verify(userServiceMock).findByCpf("1234567890");
+        verify(userServiceMock).deleteByCpf("1234567890", null);
         assertThat(responseEntity.getStatusCodeValue(), is(404));
         assertThat(responseEntity.getBody(), is("User not found"));
     }
@@ -248,36 +942,9 @@ public class UserControllerTest {
                 .email(JsonNullable.of("new_email@fake.com"))
                 .build();
 
-        UserModel userModel = UserModel.builder()
-                .cpf("1234567890")
-                .firstName("Old First Name")
-                .lastName("Old Last Name")
-                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
-                .email("old_email@fake.com")
-                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
-                .build();
-
-        Set<ConstraintViolation<UserDto>> constraintViolations = new HashSet<>();
+        UserModel userModel = oldUser();
 
-        ArgumentCaptor<UserModel> userModelArgumentCaptor = ArgumentCaptor.forClass(UserModel.class);
-
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        validationMock.when(() -> Validation.buildDefaultValidatorFactory()).thenReturn(validatorFactoryImpMock);
-        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
-        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolations);
-        when(userServiceMock.validateUser(any(UserModel.class), eq(false))).thenReturn(StringUtils.EMPTY);
-        when(userServiceMock.save(any(UserModel.class))).thenReturn(any(UserModel.class));
-
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
-
-        verify(userServiceMock).findByCpf("1234567890");
-        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
-        verify(validatorFactoryImpMock).getValidator();
-        verify(validatorImpMock).validate(any(UserDto.class));
-        verify(userServiceMock).validateUser(userModelArgumentCaptor.capture(), eq(false));
-        verify(userServiceMock).save((any(UserModel.class)));
-
-        UserModel userModelSaved = userModelArgumentCaptor.getValue();
+        UserModel userModelSaved = update(userDto, userModel);
 
         assertThat(userModelSaved.getCpf(), is("1234567890"));
         assertThat(userModelSaved.getFirstName(), is("New First Name"));
@@ -285,7 +952,6 @@ public class UserControllerTest {
         assertThat(userModelSaved.getDateOfBirth(), is(Date.valueOf(LocalDate.of(1989, 1, 1))));
         assertThat(userModelSaved.getEmail(), is("new_email@fake.com"));
         assertThat(userModelSaved.getRegistrationDate(), is(LocalDateTime.of(2022, 9, 15, 1, 1, 1)));
-        assertThat(responseEntity.getStatusCodeValue(), is(200));
     }
 
     @Test
@@ -294,36 +960,7 @@ public class UserControllerTest {
                 .firstName("New First Name")
                 .build();
 
-        UserModel userModel = UserModel.builder()
-                .cpf("1234567890")
-                .firstName("Old First Name")
-                .lastName("Old Last Name")
-                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
-                .email("old_email@fake.com")
-                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
-                .build();
-
-        Set<ConstraintViolation<UserDto>> constraintViolations = new HashSet<>();
-
-        ArgumentCaptor<UserModel> userModelArgumentCaptor = ArgumentCaptor.forClass(UserModel.class);
-
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        validationMock.when(Validation::buildDefaultValidatorFactory).thenReturn(validatorFactoryImpMock);
-        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
-        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolations);
-        when(userServiceMock.validateUser(any(UserModel.class), eq(false))).thenReturn(StringUtils.EMPTY);
-        when(userServiceMock.save(any(UserModel.class))).thenReturn(any(UserModel.class));
-
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
-
-        verify(userServiceMock).findByCpf("1234567890");
-        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
-        verify(validatorFactoryImpMock).getValidator();
-        verify(validatorImpMock).validate(any(UserDto.class));
-        verify(userServiceMock).validateUser(userModelArgumentCaptor.capture(), eq(false));
-        verify(userServiceMock).save((any(UserModel.class)));
-
-        UserModel userModelSaved = userModelArgumentCaptor.getValue();
+        UserModel userModelSaved = update(userDto, oldUser());
 
         assertThat(userModelSaved.getCpf(), is("1234567890"));
         assertThat(userModelSaved.getFirstName(), is("New First Name"));
@@ -331,7 +968,6 @@ public class UserControllerTest {
         assertThat(userModelSaved.getDateOfBirth(), is(Date.valueOf(LocalDate.of(1998, 12, 31))));
         assertThat(userModelSaved.getEmail(), is("old_email@fake.com"));
         assertThat(userModelSaved.getRegistrationDate(), is(LocalDateTime.of(2022, 9, 15, 1, 1, 1)));
-        assertThat(responseEntity.getStatusCodeValue(), is(200));
     }
 
     @Test
@@ -340,36 +976,7 @@ public class UserControllerTest {
                 .email(JsonNullable.of(null))
                 .build();
 
-        UserModel userModel = UserModel.builder()
-                .cpf("1234567890")
-                .firstName("Old First Name")
-                .lastName("Old Last Name")
-                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
-                .email("old_email@fake.com")
-                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
-                .build();
-
-        Set<ConstraintViolation<UserDto>> constraintViolations = new HashSet<>();
-
-        ArgumentCaptor<UserModel> userModelArgumentCaptor = ArgumentCaptor.forClass(UserModel.class);
-
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        validationMock.when(() -> Validation.buildDefaultValidatorFactory()).thenReturn(validatorFactoryImpMock);
-        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
-        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolations);
-        when(userServiceMock.validateUser(any(UserModel.class), eq(false))).thenReturn(StringUtils.EMPTY);
-        when(userServiceMock.save(any(UserModel.class))).thenReturn(any(UserModel.class));
-
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
-
-        verify(userServiceMock).findByCpf("1234567890");
-        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
-        verify(validatorFactoryImpMock).getValidator();
-        verify(validatorImpMock).validate(any(UserDto.class));
-        verify(userServiceMock).validateUser(userModelArgumentCaptor.capture(), eq(false));
-        verify(userServiceMock).save((any(UserModel.class)));
-
-        UserModel userModelSaved = userModelArgumentCaptor.getValue();
+        UserModel userModelSaved = update(userDto, oldUser());
 
         assertThat(userModelSaved.getCpf(), is("1234567890"));
         assertThat(userModelSaved.getFirstName(), is("Old First Name"));
@@ -377,7 +984,6 @@ public class UserControllerTest {
         assertThat(userModelSaved.getDateOfBirth(), is(Date.valueOf(LocalDate.of(1998, 12, 31))));
         assertThat(userModelSaved.getEmail(), is(nullValue()));
         assertThat(userModelSaved.getRegistrationDate(), is(LocalDateTime.of(2022, 9, 15, 1, 1, 1)));
-        assertThat(responseEntity.getStatusCodeValue(), is(200));
     }
 
     @Test
@@ -386,36 +992,7 @@ public class UserControllerTest {
                 .cpf("4565789798")
                 .build();
 
-        UserModel userModel = UserModel.builder()
-                .cpf("1234567890")
-                .firstName("Old First Name")
-                .lastName("Old Last Name")
-                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
-                .email("old_email@fake.com")
-                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
-                .build();
-
-        Set<ConstraintViolation<UserDto>> constraintViolations = new HashSet<>();
-
-        ArgumentCaptor<UserModel> userModelArgumentCaptor = ArgumentCaptor.forClass(UserModel.class);
-
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        validationMock.when(() -> Validation.buildDefaultValidatorFactory()).thenReturn(validatorFactoryImpMock);
-        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
-        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolations);
-        when(userServiceMock.validateUser(any(UserModel.class), eq(false))).thenReturn(StringUtils.EMPTY);
-        when(userServiceMock.save(any(UserModel.class))).thenReturn(any(UserModel.class));
-
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
-
-        verify(userServiceMock).findByCpf("1234567890");
-        validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
-        verify(validatorFactoryImpMock).getValidator();
-        verify(validatorImpMock).validate(any(UserDto.class));
-        verify(userServiceMock).validateUser(userModelArgumentCaptor.capture(), eq(false));
-        verify(userServiceMock).save((any(UserModel.class)));
-
-        UserModel userModelSaved = userModelArgumentCaptor.getValue();
+        UserModel userModelSaved = update(userDto, oldUser());
 
         assertThat(userModelSaved.getCpf(), is("1234567890"));
         assertThat(userModelSaved.getFirstName(), is("Old First Name"));
@@ -423,17 +1000,16 @@ public class UserControllerTest {
         assertThat(userModelSaved.getDateOfBirth(), is(Date.valueOf(LocalDate.of(1998, 12, 31))));
         assertThat(userModelSaved.getEmail(), is("old_email@fake.com"));
         assertThat(userModelSaved.getRegistrationDate(), is(LocalDateTime.of(2022, 9, 15, 1, 1, 1)));
-        assertThat(responseEntity.getStatusCodeValue(), is(200));
     }
 
     @Test
     public void should_no_update_an_user_when_cpf_not_exists() {
         UserDto userDto = UserDto.builder().build();
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.ofNullable(null));
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenReturn(UserUpdateResultDto.notFound());
 
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", null, userDto);
 
-        verify(userServiceMock).findByCpf("1234567890");
+        verify(userServiceMock).update(eq("1234567890"), any(), any(), any());
         assertThat(responseEntity.getStatusCodeValue(), is(404));
         assertThat(responseEntity.getBody(), is("User not found"));
     }
@@ -446,26 +1022,23 @@ public class UserControllerTest {
                 .email(JsonNullable.of("incorrectEmail"))
                 .build();
 
-        UserModel userModel = UserModel.builder()
-                .cpf("1234567890")
-                .firstName("Old First Name")
-                .lastName("Old Last Name")
-                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
-                .email("old_email@fake.com")
-                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
-                .build();
+        UserModel userModel = oldUser();
 
         Set<ConstraintViolation<UserDto>> constraintViolationsMock = new HashSet<>();
         constraintViolationsMock.add(constraintViolationMock);
 
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
+        // the service checks the constraints of the user once changed
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<UserModel>>getArgument(2).accept(userModel);
+            return UserUpdateResultDto.invalid(invocation.<Function<UserModel, List<String>>>getArgument(3).apply(userModel));
+        });
         validationMock.when(() -> Validation.buildDefaultValidatorFactory()).thenReturn(validatorFactoryImpMock);
         when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
         when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolationsMock);
 
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", null, userDto);
 
-        verify(userServiceMock).findByCpf("1234567890");
+        verify(userServiceMock).update(eq("1234567890"), any(), any(), any());
         validationMock.verify(Validation::buildDefaultValidatorFactory, times(1));
         verify(validatorFactoryImpMock).getValidator();
         verify(validatorImpMock).validate(any(UserDto.class));
@@ -478,25 +1051,41 @@ public class UserControllerTest {
     @Test
     public void should_no_update_an_user_when_exists_validateModifiedUserLeyend() {
         UserDto userDto = UserDto.builder().build();
-        UserModel userModel = UserModel.builder().build();
-        Set<ConstraintViolation<UserDto>> constraintViolations = new HashSet<>();
-
-        when(userServiceMock.findByCpf("1234567890")).thenReturn(Optional.of(userModel));
-        validationMock.when(() -> Validation.buildDefaultValidatorFactory()).thenReturn(validatorFactoryImpMock);
-        when(validatorFactoryImpMock.getValidator()).thenReturn(validatorImpMock);
-        when(validatorImpMock.validate(any(UserDto.class))).thenReturn(constraintViolations);
-        when(userServiceMock.validateUser(any(UserModel.class), eq(false))).thenReturn("There is conflicts");
-        when(userServiceMock.save(any(UserModel.class))).thenReturn(any(UserModel.class));
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any()))
+                .thenReturn(UserUpdateResultDto.conflict("There is conflicts"));
 
-        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", userDto);
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", null, userDto);
 
-        verify(userServiceMock).findByCpf("1234567890");
-        validationMock.verify(Validation::buildDefaultValidatorFactory);
-        verify(validatorFactoryImpMock).getValidator();
-        verify(validatorImpMock).validate(any(UserDto.class));
-        verify(userServiceMock).validateUser(userModel, false);
+        verify(userServiceMock).update(eq("1234567890"), any(), any(), any());
 
         assertThat(responseEntity.getStatusCodeValue(), is(409));
         assertThat(responseEntity.getBody(), is("There is conflicts"));
     }
+
+    //region private methods
+    private UserModel oldUser() {
+        return UserModel.builder()
+                .cpf("1234567890")
+                .firstName("Old First Name")
+                .lastName("Old Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1998, 12, 31)))
+                .email("old_email@fake.com")
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build();
+    }
+
+    // runs a full update the service accepts, returning the user once changed by the request body
+    private UserModel update(UserDto userDto, UserModel userModel) {
+        ArgumentCaptor<Consumer<UserModel>> changesCaptor = ArgumentCaptor.forClass(Consumer.class);
+        when(userServiceMock.update(eq("1234567890"), any(), any(), any())).thenReturn(UserUpdateResultDto.updated(userModel));
+
+        ResponseEntity<Object> responseEntity = userController.updateUser("1234567890", null, userDto);
+
+        verify(userServiceMock).update(eq("1234567890"), any(), changesCaptor.capture(), any());
+        assertThat(responseEntity.getStatusCodeValue(), is(200));
+        assertThat(responseEntity.getBody(), is(userModel));
+        changesCaptor.getValue().accept(userModel);
+        return userModel;
+    }
+    //endregion
 }
@@ -1,23 +1,48 @@
 package com.api.usercontrol.repositories;
 
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserField;
 import com.api.usercontrol.models.UserModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.jdbc.Sql;
 
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Sql("classpath:test-data.sql")
 public class UserRepositoryTest {
 
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestEntityManager testEntityManager;
 
     @Test
     public void should_return_an_user_record_when_is_searcher_by_cpf() {
@@ -27,28 +52,258 @@ public class UserRepositoryTest {
 
     @Test
     public void should_return_an_user_record_when_is_searcher_by_email() {
-        boolean exists = userRepository.existsByEmail("one_email@fake.com");
+        boolean exists = userRepository.existsByEmailNormalized("one_email@fake.com");
+        boolean existsOtherCase = userRepository.existsByEmailNormalized("other_email@fake.com");
         assertTrue(exists);
+        assertTrue(existsOtherCase);
+    }
+
+    @Test
+    public void should_probe_the_cpf_and_the_email_of_other_users_in_one_query() {
+        UserConflictProbe registered = userRepository.probeConflicts("11111111101", "one_email@fake.com");
+        UserConflictProbe emailOfOtherUser = userRepository.probeConflicts("33333333303", "one_email@fake.com");
+        UserConflictProbe free = userRepository.probeConflicts("33333333303", "new@fake.com");
+        UserConflictProbe withoutEmail = userRepository.probeConflicts("11111111101", "");
+
+        assertThat(registered.isCpfTaken(), is(true));
+        assertThat(registered.isEmailTaken(), is(false));
+        assertThat(emailOfOtherUser.isCpfTaken(), is(false));
+        assertThat(emailOfOtherUser.isEmailTaken(), is(true));
+        assertThat(free.isCpfTaken(), is(false));
+        assertThat(free.isEmailTaken(), is(false));
+        assertThat(withoutEmail.isCpfTaken(), is(true));
+        assertThat(withoutEmail.isEmailTaken(), is(false));
+    }
+
+    @Test
+    public void should_return_only_the_given_cpfs_and_emails_that_are_registered() {
+        List<String> cpfList = userRepository.findCpfsIn(Arrays.asList("11111111101", "33333333303"));
+        List<String> emailList = userRepository.findEmailsIn(Arrays.asList("one_email@fake.com", "new@fake.com"));
+
+        assertThat(cpfList, is(Arrays.asList("11111111101")));
+        assertThat(emailList, is(Arrays.asList("one_email@fake.com")));
+    }
+
+    @Test
+    public void should_stream_all_users_ordered_by_cpf() {
+        List<String> cpfList = userRepository.streamAll(1)
+                .map(UserModel::getCpf)
+                .collect(Collectors.toList());
+
+        assertThat(cpfList, is(Arrays.asList("11111111101", "2222222202")));
     }
 
     @Test
-    public void findUserByEmailAndNotCpf() {
-        List<UserModel> userModelList = userRepository.findUserByEmail("one_email@fake.com");
+    public void should_seek_the_users_after_the_cursor_using_the_cpf_as_tiebreaker() {
+        UserModel first = userRepository.findPageAfter(UserCursor.start(UserCursor.SortKey.LAST_NAME), 1).get(0);
+        List<UserModel> userModelList = userRepository.findPageAfter(
+                UserCursor.after(UserCursor.SortKey.LAST_NAME, first), 10);
 
+        assertThat(first.getCpf(), is("11111111101"));
         assertThat(userModelList.size(), is(1));
+        assertThat(userModelList.get(0).getCpf(), is("2222222202"));
+    }
+
+    @Test
+    public void should_seek_the_users_after_the_cursor_by_cpf() {
+        UserModel first = userRepository.findById("11111111101").get();
+        List<UserModel> userModelList = userRepository.findPageAfter(
+                UserCursor.after(UserCursor.SortKey.CPF, first), 10);
+
+        assertThat(userModelList.size(), is(1));
+        assertThat(userModelList.get(0).getCpf(), is("2222222202"));
     }
 
     @Test
     public void should_return_a_list_of_users_where_the_first_name_matches_the_given_search_text() {
-        List<UserModel> userModelList = userRepository.findByFirstNameContains("Name");
+        List<UserModel> userModelList = userRepository.findByFirstNameSearchContains("name");
 
         assertThat(userModelList.size(), is(2));
     }
 
     @Test
     public void should_return_a_list_of_users_where_the_Last_name_matches_the_given_search_text() {
-        List<UserModel> userModelList = userRepository.findByLastNameContains("La");
+        List<UserModel> userModelList = userRepository.findByLastNameSearchContains("la");
 
         assertThat(userModelList.size(), is(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void should_read_the_users_of_a_list_of_cpfs_with_one_query() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<UserModel> userModelList = userRepository.findByCpfIn(Arrays.asList("11111111101", "2222222202", "3333333303"));
+
+        assertThat(userModelList.size(), is(2));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    public void should_walk_the_cpfs_matching_a_filter_after_the_given_one() {
+        List<String> firstCpfs = userRepository.findCpfsByContainsAfter("firstNameSearch", "name", null, 1);
+        List<String> nextCpfs = userRepository.findCpfsByContainsAfter("firstNameSearch", "name", firstCpfs.get(0), 10);
+
+        assertThat(firstCpfs, is(Arrays.asList("11111111101")));
+        assertThat(nextCpfs, is(Arrays.asList("2222222202")));
+    }
+
+    @Test
+    public void should_delete_a_user_with_one_statement_only_while_it_has_the_version() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int deletedWithOtherVersion = userRepository.deleteByCpfAndVersion("11111111101", 99L);
+        int deleted = userRepository.deleteByCpf("11111111101");
+
+        assertThat(deletedWithOtherVersion, is(0));
+        assertThat(deleted, is(1));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+    }
+
+    @Test
+    public void should_delete_the_users_of_a_list_of_cpfs_with_one_statement() {
+        int deleted = userRepository.deleteByCpfIn(Arrays.asList("11111111101", "2222222202", "3333333303"));
+
+        assertThat(deleted, is(2));
+        assertThat(userRepository.count(), is(0L));
+    }
+
+    @Test
+    public void should_delete_only_the_users_of_a_list_of_cpfs_still_matching_the_filter() {
+        int deleted = userRepository.deleteByContainsIn("firstNameSearch", "one", Arrays.asList("11111111101", "2222222202"));
+
+        assertThat(deleted, is(1));
+        assertThat(userRepository.existsById("11111111101"), is(false));
+        assertThat(userRepository.existsById("2222222202"), is(true));
+    }
+
+    @Test
+    public void should_read_a_slice_of_users_with_one_query_and_no_count() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Slice<UserModel> slice = userRepository.findAllBy(PageRequest.of(0, 1, Sort.by("cpf")));
+
+        assertThat(slice.getContent().size(), is(1));
+        assertThat(slice.getContent().get(0).getCpf(), is("11111111101"));
+        assertThat(slice.hasNext(), is(true));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    public void should_select_only_the_given_fields_of_a_page_of_users() {
+        Page<Map<String, Object>> page = userRepository.findAllFields(
+                Arrays.asList(UserField.CPF, UserField.FIRST_NAME, UserField.DATE_OF_BIRTH),
+                PageRequest.of(0, 1, Sort.by("cpf")));
+
+        assertThat(page.getTotalElements(), is(2L));
+        assertThat(page.getContent().size(), is(1));
+        Map<String, Object> user = page.getContent().get(0);
+        assertThat(new ArrayList<>(user.keySet()), is(Arrays.asList("cpf", "firstName", "dateOfBirth")));
+        assertThat(user.get("cpf"), is("11111111101"));
+        assertThat(user.get("firstName"), is("One First Name"));
+        // the date of birth is written as the entity writes it
+        Map<?, ?> entity = new ObjectMapper().findAndRegisterModules().convertValue(userRepository.findById("11111111101").get(), Map.class);
+        assertThat(user.get("dateOfBirth"), is(entity.get("dateOfBirth")));
+    }
+
+    @Test
+    public void should_select_only_the_given_fields_of_the_users_whose_property_contains_the_text() {
+        List<Map<String, Object>> users = userRepository.findFieldsByContains(
+                Collections.singletonList(UserField.CPF), "lastNameSearch", "one last");
+        List<Map<String, Object>> usersMatchingWildcard = userRepository.findFieldsByContains(
+                Collections.singletonList(UserField.CPF), "lastNameSearch", "%");
+
+        assertThat(users.size(), is(2));
+        assertThat(users.get(0).keySet(), is(Collections.singleton("cpf")));
+        assertThat(usersMatchingWildcard.size(), is(0));
+    }
+
+    @Test
+    public void should_keep_the_search_columns_lower_cased_and_unaccented_when_a_user_is_saved() {
+        userRepository.save(UserModel.builder()
+                .cpf("33333333303")
+                .firstName("João")
+                .lastName("CONCEIÇÃO")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build());
+        userRepository.flush();
+
+        assertThat(userRepository.findByFirstNameSearchContains("joao").size(), is(1));
+        assertThat(userRepository.findByLastNameSearchContains("conceicao").size(), is(1));
+    }
+
+    @Test
+    public void should_register_a_new_user_with_one_insert_and_no_select() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        userRepository.save(UserModel.builder()
+                .cpf("33333333303")
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build());
+        userRepository.flush();
+
+        assertThat(statistics.getEntityInsertCount(), is(1L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    public void should_mark_loaded_users_as_not_new() {
+        UserModel userModel = userRepository.findById("11111111101").get();
+
+        assertThat(userModel.isNew(), is(false));
+    }
+
+    @Test
+    public void should_increment_the_version_when_a_user_is_updated() {
+        UserModel userModel = userRepository.findById("11111111101").get();
+        userModel.setFirstName("Updated First Name");
+        userRepository.saveAndFlush(userModel);
+
+        assertThat(userModel.getVersion(), is(1L));
+    }
+
+    @Test
+    public void should_update_the_given_fields_and_the_version_with_a_single_statement() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("firstName", "Updated First Name");
+        values.put("firstNameSearch", "updated first name");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Long version = userRepository.updateFields("11111111101", values, 0L);
+
+        assertThat(version, is(1L));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+
+        testEntityManager.clear();
+        UserModel userModel = userRepository.findById("11111111101").get();
+        assertThat(userModel.getFirstName(), is("Updated First Name"));
+        assertThat(userModel.getEmail(), is("one_email@fake.com"));
+        assertThat(userModel.getVersion(), is(1L));
+    }
+
+    @Test
+    public void should_not_update_the_given_fields_when_the_version_is_not_the_expected_one() {
+        Long version = userRepository.updateFields("11111111101",
+                Collections.singletonMap("lastName", "Updated Last Name"), 5L);
+
+        assertThat(version, is(nullValue()));
+    }
+
+    @Test
+    public void should_read_the_new_version_back_when_updating_the_given_fields_without_an_expected_one() {
+        Long version = userRepository.updateFields("11111111101",
+                Collections.singletonMap("lastName", "Updated Last Name"), null);
+
+        assertThat(version, is(1L));
+    }
+}
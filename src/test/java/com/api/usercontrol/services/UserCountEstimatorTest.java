@@ -0,0 +1,54 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@DataJpaTest
+@Sql("classpath:test-data.sql")
+public class UserCountEstimatorTest {
+
+    @TestConfiguration
+    @EnableConfigurationProperties(UserControlProperties.class)
+    @Import(UserCountEstimator.class)
+    static class UserCountEstimatorConfig {
+    }
+
+    @Autowired
+    private UserCountEstimator userCountEstimator;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void should_reuse_the_exact_count_where_the_database_keeps_no_estimate() {
+        long estimate = userCountEstimator.estimate();
+        jdbcTemplate.update("DELETE FROM TB_USER WHERE CPF = '11111111101'");
+
+        assertThat(estimate, is(2L));
+        assertThat(userCountEstimator.estimate(), is(2L));
+    }
+
+    @Test
+    public void should_count_again_once_the_exact_count_expires() {
+        UserControlProperties properties = new UserControlProperties();
+        properties.getCount().setExactTtl(Duration.ZERO);
+        UserCountEstimator notCachingEstimator = new UserCountEstimator(jdbcTemplate, properties);
+
+        long estimate = notCachingEstimator.estimate();
+        jdbcTemplate.update("DELETE FROM TB_USER WHERE CPF = '11111111101'");
+
+        assertThat(estimate, is(2L));
+        assertThat(notCachingEstimator.estimate(), is(1L));
+    }
+}
@@ -0,0 +1,146 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the lock against PostgreSQL connection stubs, the tests' H2 database takes none.
+ */
+public class UserExistenceFilterLockTest {
+    private DataSource dataSourceMock;
+    private DatabaseMetaData metaDataMock;
+    private Connection lockConnectionMock;
+    private PreparedStatement preparedStatementMock;
+    private ResultSet resultSetMock;
+    private UserExistenceFilter userExistenceFilterMock;
+    private UserControlProperties properties;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSourceMock = mock(DataSource.class);
+        Connection pooledConnectionMock = mock(Connection.class);
+        metaDataMock = mock(DatabaseMetaData.class);
+        lockConnectionMock = mock(Connection.class);
+        preparedStatementMock = mock(PreparedStatement.class);
+        resultSetMock = mock(ResultSet.class);
+        userExistenceFilterMock = mock(UserExistenceFilter.class);
+        properties = new UserControlProperties();
+        properties.getBloom().setEnabled(true);
+
+        when(dataSourceMock.getConnection()).thenReturn(pooledConnectionMock);
+        when(pooledConnectionMock.getMetaData()).thenReturn(metaDataMock);
+        when(metaDataMock.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(lockConnectionMock.prepareStatement(anyString())).thenReturn(preparedStatementMock);
+        when(preparedStatementMock.executeQuery()).thenReturn(resultSetMock);
+        when(resultSetMock.next()).thenReturn(true);
+    }
+
+    @Test
+    public void should_hold_the_lock_on_a_connection_of_its_own_while_running_with_the_filters() throws Exception {
+        when(resultSetMock.getBoolean(1)).thenReturn(true);
+        UserExistenceFilterLock lock = lock();
+
+        lock.acquire();
+
+        verify(lockConnectionMock).prepareStatement("SELECT pg_try_advisory_lock(?)");
+        verify(preparedStatementMock).setLong(1, UserExistenceFilterLock.LOCK_KEY);
+        verify(lockConnectionMock, never()).close();
+
+        lock.release();
+
+        verify(lockConnectionMock).close();
+    }
+
+    @Test
+    public void should_not_start_with_the_filters_next_to_another_instance_with_them() throws Exception {
+        when(resultSetMock.getBoolean(1)).thenReturn(false);
+        UserExistenceFilterLock lock = lock();
+
+        assertThrows(IllegalStateException.class, lock::acquire);
+
+        verify(lockConnectionMock).close();
+    }
+
+    @Test
+    public void should_take_no_lock_without_the_filters() throws Exception {
+        properties.getBloom().setEnabled(false);
+        UserExistenceFilterLock lock = lock();
+
+        lock.acquire();
+        lock.check();
+        lock.release();
+
+        verifyNoInteractions(dataSourceMock, lockConnectionMock);
+    }
+
+    @Test
+    public void should_take_no_lock_on_an_embedded_database() throws Exception {
+        when(metaDataMock.getDatabaseProductName()).thenReturn("H2");
+        UserExistenceFilterLock lock = lock();
+
+        lock.acquire();
+        lock.release();
+
+        verifyNoInteractions(lockConnectionMock);
+    }
+
+    @Test
+    public void should_keep_the_filters_while_the_lock_is_held() throws Exception {
+        when(resultSetMock.getBoolean(1)).thenReturn(true);
+        UserExistenceFilterLock lock = lock();
+        lock.acquire();
+
+        lock.check();
+
+        verifyNoInteractions(userExistenceFilterMock);
+        verify(lockConnectionMock, never()).close();
+    }
+
+    @Test
+    public void should_disable_the_filters_once_the_lock_is_lost() throws Exception {
+        when(resultSetMock.getBoolean(1)).thenReturn(true, false);
+        UserExistenceFilterLock lock = lock();
+        lock.acquire();
+
+        lock.check();
+        lock.check();
+
+        verify(userExistenceFilterMock).disable();
+        verify(lockConnectionMock).close();
+    }
+
+    @Test
+    public void should_disable_the_filters_once_the_session_of_the_lock_drops() throws Exception {
+        when(resultSetMock.getBoolean(1)).thenReturn(true);
+        UserExistenceFilterLock lock = lock();
+        lock.acquire();
+        when(preparedStatementMock.executeQuery()).thenThrow(new SQLException("An I/O error occurred"));
+
+        lock.check();
+
+        verify(userExistenceFilterMock).disable();
+        verify(lockConnectionMock).close();
+    }
+
+    //region private methods
+    private UserExistenceFilterLock lock() {
+        return new UserExistenceFilterLock(dataSourceMock, () -> lockConnectionMock, userExistenceFilterMock, properties);
+    }
+    //endregion
+}
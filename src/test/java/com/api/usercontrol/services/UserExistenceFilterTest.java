@@ -0,0 +1,147 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.models.UserModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The filters read the table from their own connections, so the test data is committed.
+ */
+@DataJpaTest(properties = "usercontrol.bloom.expected-insertions=1000")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql("classpath:test-data.sql")
+@Sql(statements = "DELETE FROM TB_USER", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class UserExistenceFilterTest {
+
+    @TestConfiguration
+    @EnableConfigurationProperties(UserControlProperties.class)
+    @Import(UserExistenceFilter.class)
+    static class UserExistenceFilterConfig {
+    }
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void should_consider_every_cpf_and_email_as_registered_before_the_filters_are_built() {
+        UserExistenceFilter notBuiltFilter = new UserExistenceFilter(jdbcTemplate, new UserControlProperties());
+
+        assertTrue(notBuiltFilter.mightContainCpf("33333333303"));
+        assertTrue(notBuiltFilter.mightContainEmail("new@fake.com"));
+    }
+
+    @Test
+    public void should_contain_the_registered_cpfs_and_emails_once_built() {
+        userExistenceFilter.rebuild();
+        userExistenceFilter.add(UserModel.builder().cpf("52998224725").email("Added@fake.com").build());
+
+        assertTrue(userExistenceFilter.mightContainCpf("11111111101"));
+        assertTrue(userExistenceFilter.mightContainCpf("2222222202"));
+        assertTrue(userExistenceFilter.mightContainCpf("52998224725"));
+        assertTrue(userExistenceFilter.mightContainEmail("ONE_EMAIL@fake.com"));
+        assertTrue(userExistenceFilter.mightContainEmail("other_email@fake.com"));
+        assertTrue(userExistenceFilter.mightContainEmail("added@fake.com"));
+        assertFalse(userExistenceFilter.mightContainCpf("33333333303"));
+        assertFalse(userExistenceFilter.mightContainEmail("new@fake.com"));
+    }
+
+    @Test
+    public void should_consider_every_cpf_and_email_as_registered_once_disabled() {
+        UserControlProperties properties = new UserControlProperties();
+        properties.getBloom().setExpectedInsertions(1000);
+        UserExistenceFilter filter = new UserExistenceFilter(jdbcTemplate, properties);
+        filter.rebuild();
+
+        filter.disable();
+        filter.rebuild();
+
+        assertTrue(filter.mightContainCpf("33333333303"));
+        assertTrue(filter.mightContainEmail("new@fake.com"));
+    }
+
+    @Test
+    public void should_keep_an_user_added_while_it_is_rebuilt_after_its_range_was_scanned() throws Exception {
+        CountDownLatch secondRangeRequested = new CountDownLatch(1);
+        CountDownLatch userAdded = new CountDownLatch(1);
+        AtomicBoolean paused = new AtomicBoolean(false);
+        AtomicInteger connections = new AtomicInteger();
+        // the count takes the first connection and each range scan one more, in order with a single scan thread
+        DataSource pausingDataSource = new DelegatingDataSource(Objects.requireNonNull(jdbcTemplate.getDataSource())) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (paused.get() && connections.incrementAndGet() == 3) {
+                    secondRangeRequested.countDown();
+                    awaitUninterruptibly(userAdded);
+                }
+                return super.getConnection();
+            }
+        };
+        UserControlProperties properties = new UserControlProperties();
+        properties.getBloom().setExpectedInsertions(1000);
+        properties.getBloom().setScanParallelism(1);
+        UserExistenceFilter filter = new UserExistenceFilter(new JdbcTemplate(pausingDataSource), properties);
+        filter.rebuild();
+        paused.set(true);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuild = executor.submit(filter::rebuild);
+            assertTrue(secondRangeRequested.await(10, TimeUnit.SECONDS));
+
+            // as a registration does: before the insert, and again once it is committed
+            UserModel userModel = UserModel.builder().cpf("00000000191").email("added@fake.com").build();
+            filter.add(userModel);
+            jdbcTemplate.update("INSERT INTO TB_USER (CPF, FIRST_NAME, LAST_NAME, DATE_OF_BIRTH, EMAIL,"
+                    + " REGISTRATION_DATE, VERSION) VALUES (?, 'First', 'Last', '1989-01-01', ?, '2022-09-15', 0)",
+                    userModel.getCpf(), userModel.getEmail());
+            filter.add(userModel);
+            userAdded.countDown();
+            rebuild.get(10, TimeUnit.SECONDS);
+        } finally {
+            userAdded.countDown();
+            executor.shutdownNow();
+        }
+
+        assertTrue(filter.mightContainCpf("00000000191"));
+        assertTrue(filter.mightContainEmail("added@fake.com"));
+        assertTrue(filter.mightContainCpf("11111111101"));
+        assertFalse(filter.mightContainCpf("33333333303"));
+    }
+
+    //region private methods
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    //endregion
+}
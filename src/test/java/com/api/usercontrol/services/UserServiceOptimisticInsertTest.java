@@ -0,0 +1,125 @@
+package com.api.usercontrol.services;
+
+import com.api.usercontrol.configs.DatabaseSchemaInitializer;
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.dto.UserUpdateResultDto;
+import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserRepository;
+import org.apache.commons.lang3.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openapitools.jackson.nullable.JsonNullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the optimistic insert against the database, so the constraint names reported by the
+ * driver are the real ones. Each insert commits, hence no test transaction.
+ */
+@DataJpaTest(properties = "usercontrol.registration.optimistic-insert=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserServiceOptimisticInsertTest {
+
+    @TestConfiguration
+    @EnableConfigurationProperties(UserControlProperties.class)
+    @Import({UserService.class, UserCache.class, UserExistenceFilter.class, UserCountEstimator.class,
+            UserMetrics.class, DatabaseSchemaInitializer.class})
+    static class OptimisticInsertConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserControlProperties properties;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void should_report_a_duplicate_cpf_or_email_detected_by_the_database() {
+        String firstLeyend = userService.insert(newUser("52998224725", "email@fake.com"));
+        String sameCpfLeyend = userService.insert(newUser("52998224725", "other@fake.com"));
+        String sameEmailLeyend = userService.insert(newUser("11144477735", "EMAIL@fake.com"));
+        String withoutEmailLeyend = userService.insert(newUser("11144477735", null));
+
+        assertThat(firstLeyend, is(StringUtils.EMPTY));
+        assertThat(sameCpfLeyend, is("Conflict: CPF exist already!"));
+        assertThat(sameEmailLeyend, is("Conflict: This email has been assigned another user!"));
+        assertThat(withoutEmailLeyend, is(StringUtils.EMPTY));
+        assertThat(userRepository.count(), is(2L));
+    }
+
+    @Test
+    public void should_report_an_update_to_the_email_of_another_user_in_other_case() {
+        userService.insert(newUser("52998224725", "email@fake.com"));
+        UserModel otherUser = newUser("11144477735", "other@fake.com");
+        userService.insert(otherUser);
+        UserDto changes = UserDto.builder().email(JsonNullable.of("EMAIL@fake.com")).build();
+        otherUser.setEmail("Email@Fake.com");
+
+        UserUpdateResultDto result = userService.updateFields("11144477735", changes, null);
+        String validateLeyend = userService.validateUser(otherUser, false);
+
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.CONFLICT));
+        assertThat(result.getReason(), is("Conflict: This email has been assigned another user!"));
+        assertThat(validateLeyend, is("Conflict: This email has been assigned another user!"));
+    }
+
+    @Test
+    public void should_not_start_when_the_email_unique_index_cannot_be_created() {
+        jdbcTemplate.execute("DROP INDEX " + DatabaseSchemaInitializer.EMAIL_NORMALIZED_UNIQUE_INDEX);
+        try {
+            userRepository.insert(newUser("52998224725", "email@fake.com"));
+            userRepository.insert(newUser("11144477735", "EMAIL@fake.com"));
+
+            DatabaseSchemaInitializer initializer = new DatabaseSchemaInitializer(jdbcTemplate, properties);
+
+            assertThrows(IllegalStateException.class, initializer::initialize);
+        } finally {
+            userRepository.deleteAll();
+            new DatabaseSchemaInitializer(jdbcTemplate, properties).initialize();
+        }
+    }
+
+    //region private methods
+    private static UserModel newUser(String cpf, String email) {
+        return UserModel.builder()
+                .cpf(cpf)
+                .firstName("First Name")
+                .lastName("Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email(email)
+                .registrationDate(LocalDateTime.of(2022, 9, 15, 1, 1, 1))
+                .build();
+    }
+    //endregion
+}
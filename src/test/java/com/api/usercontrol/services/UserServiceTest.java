@@ -1,37 +1,57 @@
 package com.api.usercontrol.services;
 
+import com.api.usercontrol.configs.UserControlProperties;
+import com.api.usercontrol.dto.UserCursor;
+import com.api.usercontrol.dto.UserCursorPageDto;
+import com.api.usercontrol.dto.UserDto;
+import com.api.usercontrol.dto.UserLookupResultDto;
+import com.api.usercontrol.dto.UserUpdateResultDto;
 import com.api.usercontrol.models.UserModel;
+import com.api.usercontrol.repositories.UserConflictProbe;
 import com.api.usercontrol.repositories.UserRepository;
 import com.api.usercontrol.utils.Tools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import org.openapitools.jackson.nullable.JsonNullable;
 import org.powermock.reflect.internal.WhiteboxImpl;
 import org.slf4j.Logger;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.sql.Date;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -41,6 +61,9 @@ import static org.mockito.Mockito.when;
 @SpringBootTest
 public class UserServiceTest {
     private UserRepository userRepositoryMock;
+    private UserExistenceFilter userExistenceFilterMock;
+    private UserCountEstimator userCountEstimatorMock;
+    private SimpleMeterRegistry meterRegistry;
     private Logger loggerMock;
     private static MockedStatic<Tools> toolsMock;
     private UserService userService;
@@ -52,13 +75,23 @@ public class UserServiceTest {
         toolsMock = Mockito.mockStatic(Tools.class);
 
         WhiteboxImpl.setInternalState(UserService.class, "log", loggerMock);
-        userService = new UserService(userRepositoryMock);
+        userExistenceFilterMock = mock(UserExistenceFilter.class);
+        when(userExistenceFilterMock.mightContainCpf(any())).thenReturn(true);
+        when(userExistenceFilterMock.mightContainEmail(any())).thenReturn(true);
+
+        userCountEstimatorMock = mock(UserCountEstimator.class);
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        userService = new UserService(userRepositoryMock, new UserCache(new UserControlProperties()),
+                userExistenceFilterMock, userCountEstimatorMock, new UserMetrics(meterRegistry));
     }
 
     @AfterEach
     public void tearDown() {
         verifyNoMoreInteractions(userRepositoryMock);
         verifyNoMoreInteractions(loggerMock);
+        verifyNoMoreInteractions(userCountEstimatorMock);
 
         toolsMock.close();
     }
@@ -88,6 +121,142 @@ public class UserServiceTest {
         assertThat(userModelReturned.getRegistrationDate(), is(LocalDateTime.of(2022, 9, 15, 1, 1, 1)));
     }
 
+    @Test
+    public void should_save_a_chunk_of_users_checking_conflicts_with_one_query_per_field() {
+        UserModel newUser = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+        UserModel repeatedInChunk = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .build();
+        UserModel registeredUser = UserModel.builder()
+                .cpf("0987654321")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf(anyString())).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.findCpfsIn(any())).thenReturn(Arrays.asList("0987654321"));
+        when(userRepositoryMock.findEmailsIn(any())).thenReturn(new ArrayList<>());
+
+        List<String> leyendList = userService.saveAll(Arrays.asList(newUser, repeatedInChunk, registeredUser));
+
+        verify(userRepositoryMock).findCpfsIn(any());
+        verify(userRepositoryMock).findEmailsIn(any());
+        verify(userRepositoryMock).persistAll(Arrays.asList(newUser));
+        verify(loggerMock).info("Users saved -> count:{}", 1);
+        assertThat(leyendList, is(Arrays.asList(StringUtils.EMPTY,
+                "Conflict: CPF exist already!",
+                "Conflict: CPF exist already!")));
+    }
+
+    @Test
+    public void should_insert_a_new_user_without_querying_for_conflicts() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+
+        String leyend = userService.insert(userModelToSave);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
+        verify(userRepositoryMock).insert(userModelToSave);
+        verify(loggerMock).info("User saved -> cpf:{}", "1234567890");
+        assertThat(leyend, is(StringUtils.EMPTY));
+    }
+
+    @Test
+    public void should_not_insert_a_new_user_that_breaks_a_rule() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(2020, 1, 1)))
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+
+        String leyend = userService.insert(userModelToSave);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        assertThat(leyend, is("Conflict: Only users over 18 years of age must be registered!"));
+    }
+
+    @Test
+    public void should_map_the_violated_unique_constraint_to_its_leyend_when_inserting() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        doThrow(uniqueViolation("uk_tb_user_email_normalized"))
+                .doThrow(uniqueViolation("tb_user_pkey"))
+                .when(userRepositoryMock).insert(userModelToSave);
+
+        String emailLeyend = userService.insert(userModelToSave);
+        String cpfLeyend = userService.insert(userModelToSave);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"), times(2));
+        verify(userRepositoryMock, times(2)).insert(userModelToSave);
+        assertThat(emailLeyend, is("Conflict: This email has been assigned another user!"));
+        assertThat(cpfLeyend, is("Conflict: CPF exist already!"));
+    }
+
+    @Test
+    public void should_rethrow_integrity_violations_that_are_not_unique_violations_when_inserting() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .build();
+        DataIntegrityViolationException notNullViolation = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException("not null", "23502"), null));
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        doThrow(notNullViolation).when(userRepositoryMock).insert(userModelToSave);
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.insert(userModelToSave));
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        verify(userRepositoryMock).insert(userModelToSave);
+    }
+
+    @Test
+    public void should_only_query_the_cpfs_and_emails_the_filter_might_contain_when_saving_a_chunk() {
+        UserModel newUser = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        when(userExistenceFilterMock.mightContainCpf("1234567890")).thenReturn(false);
+        when(userExistenceFilterMock.mightContainEmail("email@fake.com")).thenReturn(false);
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+
+        List<String> leyendList = userService.saveAll(Arrays.asList(newUser));
+
+        verify(userRepositoryMock).persistAll(Arrays.asList(newUser));
+        verify(userExistenceFilterMock).add(newUser);
+        verify(loggerMock).info("Users saved -> count:{}", 1);
+        assertThat(leyendList, is(Arrays.asList(StringUtils.EMPTY)));
+    }
+
+    @Test
+    public void should_return_false_without_querying_when_the_filter_knows_the_cpf_is_not_registered() {
+        when(userExistenceFilterMock.mightContainCpf("1234567890")).thenReturn(false);
+
+        boolean existsCpf = userService.existsByCpf("1234567890");
+
+        assertFalse(existsCpf);
+    }
+
     @Test
     public void should_return_true_when_an_user_is_searcher_by_cpf_and_exists() {
         when(userRepositoryMock.existsByCpf(any(String.class))).thenReturn(true);
@@ -110,21 +279,21 @@ public class UserServiceTest {
 
     @Test
     public void should_return_true_when_an_email_is_already_registered_with_a_user() {
-        when(userRepositoryMock.existsByEmail(any(String.class))).thenReturn(true);
+        when(userRepositoryMock.existsByEmailNormalized("email@fake.com")).thenReturn(true);
 
-        boolean existEmail = userService.existsByEmail("email@fake.com");
+        boolean existEmail = userService.existsByEmail("Email@Fake.com");
 
-        verify(userRepositoryMock).existsByEmail(any(String.class));
+        verify(userRepositoryMock).existsByEmailNormalized("email@fake.com");
         assertTrue(existEmail);
     }
 
     @Test
     public void should_return_false_when_an_email_is_not_registered_with_a_user() {
-        when(userRepositoryMock.existsByEmail(any(String.class))).thenReturn(false);
+        when(userRepositoryMock.existsByEmailNormalized(any(String.class))).thenReturn(false);
 
         boolean emailexists = userService.existsByEmail("email@fake.com");
 
-        verify(userRepositoryMock).existsByEmail(any(String.class));
+        verify(userRepositoryMock).existsByEmailNormalized(any(String.class));
         assertFalse(emailexists);
     }
 
@@ -145,16 +314,123 @@ public class UserServiceTest {
         assertThat(returnedPageContentList.size(), is(1));
     }
 
+    @Test
+    void should_return_a_slice_of_users_without_counting_them() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Slice<UserModel> slice = new SliceImpl<>(Arrays.asList(UserModel.builder().build()), pageRequest, true);
+
+        when(userRepositoryMock.findAllBy(pageRequest)).thenReturn(slice);
+
+        Slice<UserModel> returnedSlice = userService.findSlice(pageRequest);
+
+        verify(userRepositoryMock).findAllBy(pageRequest);
+        assertThat(returnedSlice.hasNext(), is(true));
+        assertThat(returnedSlice.getContent().size(), is(1));
+    }
+
+    @Test
+    void should_return_a_page_with_the_estimated_total_while_there_are_more_users() {
+        PageRequest pageRequest = PageRequest.of(1, 2);
+        List<UserModel> userModelList = Arrays.asList(UserModel.builder().build(), UserModel.builder().build());
+
+        when(userRepositoryMock.findAllBy(pageRequest)).thenReturn(new SliceImpl<>(userModelList, pageRequest, true));
+        when(userCountEstimatorMock.estimate()).thenReturn(1000L);
+
+        Page<UserModel> returnedPage = userService.findAllEstimated(pageRequest);
+
+        verify(userRepositoryMock).findAllBy(pageRequest);
+        verify(userCountEstimatorMock).estimate();
+        assertThat(returnedPage.getTotalElements(), is(1000L));
+        assertThat(returnedPage.getContent().size(), is(2));
+    }
+
+    @Test
+    void should_not_return_an_estimated_total_below_the_users_seen_while_there_are_more_users() {
+        PageRequest pageRequest = PageRequest.of(1, 2);
+        List<UserModel> userModelList = Arrays.asList(UserModel.builder().build(), UserModel.builder().build());
+
+        when(userRepositoryMock.findAllBy(pageRequest)).thenReturn(new SliceImpl<>(userModelList, pageRequest, true));
+        when(userCountEstimatorMock.estimate()).thenReturn(3L);
+
+        Page<UserModel> returnedPage = userService.findAllEstimated(pageRequest);
+
+        verify(userRepositoryMock).findAllBy(pageRequest);
+        verify(userCountEstimatorMock).estimate();
+        assertThat(returnedPage.getTotalElements(), is(5L));
+        assertThat(returnedPage.hasNext(), is(true));
+    }
+
+    @Test
+    void should_return_the_exact_total_without_estimating_it_on_the_last_page() {
+        PageRequest pageRequest = PageRequest.of(1, 2);
+
+        when(userRepositoryMock.findAllBy(pageRequest))
+                .thenReturn(new SliceImpl<>(Arrays.asList(UserModel.builder().build()), pageRequest, false));
+
+        Page<UserModel> returnedPage = userService.findAllEstimated(pageRequest);
+
+        verify(userRepositoryMock).findAllBy(pageRequest);
+        assertThat(returnedPage.getTotalElements(), is(3L));
+        assertThat(returnedPage.hasNext(), is(false));
+    }
+
+    @Test
+    void should_return_a_keyset_page_with_the_cursor_of_its_last_user_when_there_are_more() {
+        UserModel first = UserModel.builder().cpf("1").firstName("Ana").build();
+        UserModel second = UserModel.builder().cpf("2").firstName("Bia").build();
+        UserModel third = UserModel.builder().cpf("3").firstName("Caio").build();
+        UserCursor cursor = UserCursor.start(UserCursor.SortKey.FIRST_NAME);
+
+        when(userRepositoryMock.findPageAfter(cursor, 3)).thenReturn(new ArrayList<>(Arrays.asList(first, second, third)));
+
+        UserCursorPageDto<UserModel> page = userService.findPageAfter(cursor, 2);
+
+        verify(userRepositoryMock).findPageAfter(cursor, 3);
+        assertThat(page.getContent(), is(Arrays.asList(first, second)));
+        UserCursor nextCursor = UserCursor.decode(page.getNextCursor()).get();
+        assertThat(nextCursor.getSortKey(), is(UserCursor.SortKey.FIRST_NAME));
+        assertThat(nextCursor.getValue(), is("Bia"));
+        assertThat(nextCursor.getCpf(), is("2"));
+    }
+
+    @Test
+    void should_return_the_last_keyset_page_without_cursor() {
+        UserModel first = UserModel.builder().cpf("1").build();
+        UserCursor cursor = UserCursor.start(UserCursor.SortKey.CPF);
+
+        when(userRepositoryMock.findPageAfter(cursor, 3)).thenReturn(Arrays.asList(first));
+
+        UserCursorPageDto<UserModel> page = userService.findPageAfter(cursor, 2);
+
+        verify(userRepositoryMock).findPageAfter(cursor, 3);
+        assertThat(page.getContent().size(), is(1));
+        assertThat(page.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void should_hand_every_user_streamed_from_the_repository_to_the_consumer() {
+        UserModel userModel = UserModel.builder().build();
+        List<UserModel> userModelList = new ArrayList<>();
+
+        when(userRepositoryMock.streamAll(100)).thenReturn(Stream.of(userModel, userModel));
+
+        userService.forEachUser(100, userModelList::add);
+
+        verify(userRepositoryMock).streamAll(100);
+        assertThat(userModelList.size(), is(2));
+    }
+
     @Test
     void should_return_a_list_of_users_where_the_first_name_matches_the_given_search_text() {
         UserModel userModel = UserModel.builder().build();
         List<UserModel> userModelList = Arrays.asList(userModel);
 
-        when(userRepositoryMock.findByFirstNameContains("name")).thenReturn(userModelList);
+        toolsMock.when(() -> Tools.normalizeForSearch("Náme")).thenReturn("name");
+        when(userRepositoryMock.findByFirstNameSearchContains("name")).thenReturn(userModelList);
 
-        List<UserModel> userModelListReturned = userService.findByFirstNameContains("name");
+        List<UserModel> userModelListReturned = userService.findByFirstNameContains("Náme");
 
-        verify(userRepositoryMock).findByFirstNameContains("name");
+        verify(userRepositoryMock).findByFirstNameSearchContains("name");
         assertThat(userModelListReturned, is(notNullValue()));
         assertThat(userModelListReturned.size(), is(1));
     }
@@ -164,11 +440,12 @@ public class UserServiceTest {
         UserModel userModel = UserModel.builder().build();
         List<UserModel> userModelList = Arrays.asList(userModel);
 
-        when(userRepositoryMock.findByLastNameContains("name")).thenReturn(userModelList);
+        toolsMock.when(() -> Tools.normalizeForSearch("Náme")).thenReturn("name");
+        when(userRepositoryMock.findByLastNameSearchContains("name")).thenReturn(userModelList);
 
-        List<UserModel> userModelListReturned = userService.findByLastNameContains("name");
+        List<UserModel> userModelListReturned = userService.findByLastNameContains("Náme");
 
-        verify(userRepositoryMock).findByLastNameContains("name");
+        verify(userRepositoryMock).findByLastNameSearchContains("name");
         assertThat(userModelListReturned, is(notNullValue()));
         assertThat(userModelListReturned.size(), is(1));
     }
@@ -187,6 +464,80 @@ public class UserServiceTest {
         });
     }
 
+    @Test
+    void should_serve_the_lookups_by_cpf_from_the_cache_until_the_user_is_saved() {
+        UserModel userModel = UserModel.builder().cpf("1234567890").firstName("First Name").build();
+
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.of(userModel));
+        when(userRepositoryMock.save(any(UserModel.class))).thenReturn(userModel);
+
+        userService.findByCpf("1234567890");
+        UserModel cachedUserModel = userService.findByCpf("1234567890").get();
+        cachedUserModel.setFirstName("Changed Name");
+        UserModel userModelAfterChange = userService.findByCpf("1234567890").get();
+        userService.save(userModel);
+        userService.findByCpf("1234567890");
+
+        verify(userRepositoryMock, times(2)).findById("1234567890");
+        verify(userRepositoryMock).save(userModel);
+        verify(loggerMock).info("User saved -> cpf:{}", "1234567890");
+        assertThat(userModelAfterChange.getFirstName(), is("First Name"));
+    }
+
+    @Test
+    void should_look_many_users_up_with_one_query_per_chunk_of_the_cpfs_not_cached() {
+        UserModel cachedUser = UserModel.builder().cpf("1111111111").build();
+        UserModel firstUser = UserModel.builder().cpf("2222222222").build();
+        UserModel secondUser = UserModel.builder().cpf("3333333333").build();
+
+        when(userRepositoryMock.findById("1111111111")).thenReturn(Optional.of(cachedUser));
+        when(userRepositoryMock.findByCpfIn(Arrays.asList("2222222222", "3333333333")))
+                .thenReturn(Arrays.asList(secondUser, firstUser));
+        when(userRepositoryMock.findByCpfIn(Arrays.asList("4444444444"))).thenReturn(new ArrayList<>());
+
+        userService.findByCpf("1111111111");
+        UserLookupResultDto lookupResult = userService.findByCpfs(
+                Arrays.asList("2222222222", "1111111111", "3333333333", "4444444444", "2222222222"), 2);
+
+        verify(userRepositoryMock).findById("1111111111");
+        verify(userRepositoryMock).findByCpfIn(Arrays.asList("2222222222", "3333333333"));
+        verify(userRepositoryMock).findByCpfIn(Arrays.asList("4444444444"));
+        assertThat(lookupResult.getUsers().stream().map(UserModel::getCpf).collect(Collectors.toList()),
+                is(Arrays.asList("2222222222", "1111111111", "3333333333")));
+        assertThat(lookupResult.getMissing(), is(Arrays.asList("4444444444")));
+    }
+
+    @Test
+    void should_not_query_the_cpfs_known_to_be_missing_in_a_lookup() {
+        when(userExistenceFilterMock.mightContainCpf("2222222222")).thenReturn(false);
+        when(userRepositoryMock.findByCpfIn(Arrays.asList("1111111111"))).thenReturn(new ArrayList<>());
+
+        UserLookupResultDto firstLookupResult = userService.findByCpfs(Arrays.asList("1111111111", "2222222222"), 10);
+        UserLookupResultDto secondLookupResult = userService.findByCpfs(Arrays.asList("1111111111", "2222222222"), 10);
+
+        verify(userRepositoryMock).findByCpfIn(Arrays.asList("1111111111"));
+        assertThat(firstLookupResult.getMissing(), is(Arrays.asList("1111111111", "2222222222")));
+        assertThat(secondLookupResult.getMissing(), is(Arrays.asList("1111111111", "2222222222")));
+    }
+
+    @Test
+    void should_remember_the_cpfs_not_registered_until_the_user_is_registered() {
+        UserModel userModel = UserModel.builder().cpf("1234567890").build();
+
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.empty());
+        when(userRepositoryMock.save(any(UserModel.class))).thenReturn(userModel);
+
+        userService.findByCpf("1234567890");
+        Optional<UserModel> userModelReturned = userService.findByCpf("1234567890");
+        userService.save(userModel);
+        userService.findByCpf("1234567890");
+
+        verify(userRepositoryMock, times(2)).findById("1234567890");
+        verify(userRepositoryMock).save(userModel);
+        verify(loggerMock).info("User saved -> cpf:{}", "1234567890");
+        assertThat(userModelReturned.isPresent(), is(false));
+    }
+
     @Test
     void should_return_a_user_where_the_cpf_not_matches_the_given_search_cpf() {
         when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.empty());
@@ -199,15 +550,49 @@ public class UserServiceTest {
 
 
     @Test
-    public void should_delete_a_user() {
-        UserModel userModelTodelete = UserModel.builder().cpf("1234567890").build();
-
-        doNothing().when(userRepositoryMock).delete(userModelTodelete);
+    public void should_delete_a_user_with_a_single_statement() {
+        when(userRepositoryMock.deleteByCpf("1234567890")).thenReturn(1);
 
-        userService.delete(userModelTodelete);
+        int deleted = userService.deleteByCpf("1234567890", null);
 
-        verify(userRepositoryMock).delete(any(UserModel.class));
+        verify(userRepositoryMock).deleteByCpf("1234567890");
         verify(loggerMock).info("User deleted -> cpf:{}", "1234567890");
+        assertThat(deleted, is(1));
+    }
+
+    @Test
+    public void should_delete_a_user_only_while_it_has_the_expected_version() {
+        when(userRepositoryMock.deleteByCpfAndVersion("1234567890", 3L)).thenReturn(0);
+
+        int deleted = userService.deleteByCpf("1234567890", 3L);
+
+        verify(userRepositoryMock).deleteByCpfAndVersion("1234567890", 3L);
+        assertThat(deleted, is(0));
+    }
+
+    @Test
+    public void should_delete_a_chunk_of_users_with_a_single_statement() {
+        List<String> cpfs = Arrays.asList("1234567890", "0987654321");
+        when(userRepositoryMock.deleteByCpfIn(cpfs)).thenReturn(1);
+
+        int deleted = userService.deleteAll(cpfs);
+
+        verify(userRepositoryMock).deleteByCpfIn(cpfs);
+        verify(loggerMock).info("Users deleted -> count:{}", 1);
+        assertThat(deleted, is(1));
+    }
+
+    @Test
+    public void should_delete_a_chunk_of_users_only_while_they_still_match_the_filter() {
+        List<String> cpfs = Arrays.asList("1234567890", "0987654321");
+        toolsMock.when(() -> Tools.normalizeForSearch("Náme")).thenReturn("name");
+        when(userRepositoryMock.deleteByContainsIn("lastNameSearch", "name", cpfs)).thenReturn(1);
+
+        int deleted = userService.deleteAllByLastNameContains(cpfs, "Náme");
+
+        verify(userRepositoryMock).deleteByContainsIn("lastNameSearch", "name", cpfs);
+        verify(loggerMock).info("Users deleted -> count:{}", 1);
+        assertThat(deleted, is(1));
     }
 
     @Test
@@ -219,19 +604,37 @@ public class UserServiceTest {
                 .build();
 
         toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
-        when(userRepositoryMock.existsByCpf("1234567890")).thenReturn(false);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(false, false));
         toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
-        when(userRepositoryMock.existsByEmail("email@fake.com")).thenReturn(false);
 
         String leyend = userService.validateUser(userModelToSave, true);
 
         toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
-        verify(userRepositoryMock).existsByCpf("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
         toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
-        verify(userRepositoryMock).existsByEmail("email@fake.com");
         assertThat(leyend, is(StringUtils.EMPTY));
     }
 
+    @Test
+    void should_time_each_stage_the_validation_goes_through() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(2020, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(false, false));
+
+        userService.validateUser(userModelToSave, true);
+
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
+        assertThat(meterRegistry.get("usercontrol.validation").tag("stage", "cpf").timer().count(), is(1L));
+        assertThat(meterRegistry.get("usercontrol.validation").tag("stage", "cpf-taken").timer().count(), is(1L));
+        assertThat(meterRegistry.get("usercontrol.validation").tag("stage", "age").timer().count(), is(1L));
+        assertThat(meterRegistry.get("usercontrol.validation").tag("stage", "email").timer().count(), is(0L));
+    }
+
     @Test
     void should_validate_a_new_user_and_his_cpf_is_not_valid() {
         UserModel userModelToSave = UserModel.builder()
@@ -257,12 +660,12 @@ public class UserServiceTest {
                 .build();
 
         toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
-        when(userRepositoryMock.existsByCpf("1234567890")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "@fake.com")).thenReturn(probe(true, false));
 
         String leyend = userService.validateUser(userModelToSave, true);
 
         toolsMock.verify(() -> Tools.isValidCpf(anyString()));
-        verify(userRepositoryMock).existsByCpf("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "@fake.com");
 
         assertThat(leyend, is("Conflict: CPF exist already!"));
     }
@@ -276,12 +679,12 @@ public class UserServiceTest {
                 .build();
 
         toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
-        when(userRepositoryMock.existsByCpf("1234567890")).thenReturn(false);
+        when(userRepositoryMock.probeConflicts("1234567890", "@fake.com")).thenReturn(probe(false, false));
 
         String leyend = userService.validateUser(userModelToSave, true);
 
         toolsMock.verify(() -> Tools.isValidCpf(anyString()));
-        verify(userRepositoryMock).existsByCpf("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "@fake.com");
 
         assertThat(leyend, is("Conflict: Only users over 18 years of age must be registered!"));
     }
@@ -295,13 +698,13 @@ public class UserServiceTest {
                 .build();
 
         toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
-        when(userRepositoryMock.existsByCpf("1234567890")).thenReturn(false);
+        when(userRepositoryMock.probeConflicts("1234567890", "@fake.com")).thenReturn(probe(false, false));
         toolsMock.when(() -> Tools.isValidEmail("@fake.com")).thenReturn(false);
 
         String leyend = userService.validateUser(userModelToSave, true);
 
         toolsMock.verify(() -> Tools.isValidCpf(anyString()));
-        verify(userRepositoryMock).existsByCpf("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "@fake.com");
         toolsMock.verify(() -> Tools.isValidEmail(anyString()));
 
         assertThat(leyend, is("Conflict: This email is invalid!"));
@@ -316,16 +719,55 @@ public class UserServiceTest {
                 .build();
 
         toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
-        when(userRepositoryMock.existsByCpf("1234567890")).thenReturn(false);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(false, true));
         toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
-        when(userRepositoryMock.existsByEmail("email@fake.com")).thenReturn(true);
 
         String leyend = userService.validateUser(userModelToSave, true);
 
         toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
-        verify(userRepositoryMock).existsByCpf("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
         toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
-        verify(userRepositoryMock).existsByEmail("email@fake.com");
+        assertThat(leyend, is("Conflict: This email has been assigned another user!"));
+    }
+
+    @Test
+    void should_not_probe_the_conflicts_when_the_filter_knows_the_cpf_and_email_are_not_registered() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        when(userExistenceFilterMock.mightContainCpf("1234567890")).thenReturn(false);
+        when(userExistenceFilterMock.mightContainEmail("email@fake.com")).thenReturn(false);
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+
+        String leyend = userService.validateUser(userModelToSave, true);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
+        assertThat(leyend, is(StringUtils.EMPTY));
+    }
+
+    @Test
+    void should_probe_the_conflicts_when_the_filter_might_contain_only_the_email() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        when(userExistenceFilterMock.mightContainCpf("1234567890")).thenReturn(false);
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(false, true));
+
+        String leyend = userService.validateUser(userModelToSave, true);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
         assertThat(leyend, is("Conflict: This email has been assigned another user!"));
     }
 
@@ -339,13 +781,12 @@ public class UserServiceTest {
 
         toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
 
-        when(userRepositoryMock.findUserByEmail("email@fake.com")).
-                thenReturn(new ArrayList<>());
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(true, false));
 
         String leyend = userService.validateUser(userModelToSave, false);
 
         toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
-        verify(userRepositoryMock).findUserByEmail("email@fake.com");
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
         assertThat(leyend, is(StringUtils.EMPTY));
     }
 
@@ -387,17 +828,256 @@ public class UserServiceTest {
                 .email("email@fake.com")
                 .build();
 
-        UserModel userWithExistingEmail = UserModel.builder().build();
-        List<UserModel> userWithExistingEmailList = Arrays.asList(userWithExistingEmail);
-
         toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
-        when(userRepositoryMock.findUserByEmail("email@fake.com"))
-                .thenReturn(userWithExistingEmailList);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(true, true));
 
         String leyend = userService.validateUser(userModelToSave, false);
 
         toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
-        verify(userRepositoryMock).findUserByEmail("email@fake.com");
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
         assertThat(leyend, is("Conflict: This email has been assigned another user!"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void should_probe_the_conflicts_once_when_validating_a_new_user() {
+        UserModel userModelToSave = UserModel.builder()
+                .cpf("1234567890")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("email@fake.com")
+                .build();
+
+        toolsMock.when(() -> Tools.isValidCpf("1234567890")).thenReturn(true);
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(false, false));
+
+        userService.validateUser(userModelToSave, true);
+
+        toolsMock.verify(() -> Tools.isValidCpf("1234567890"));
+        toolsMock.verify(() -> Tools.isValidEmail("email@fake.com"));
+        verify(userRepositoryMock, times(1)).probeConflicts("1234567890", "email@fake.com");
+    }
+
+    @Test
+    void should_update_only_the_fields_sent_with_a_single_statement() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("firstName", "New First Name");
+        values.put("firstNameSearch", "new first name");
+
+        toolsMock.when(() -> Tools.normalizeForSearch("New First Name")).thenReturn("new first name");
+        when(userRepositoryMock.updateFields("1234567890", values, 3L)).thenReturn(4L);
+
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().firstName("New First Name").build(), 3L);
+
+        verify(userRepositoryMock).updateFields("1234567890", values, 3L);
+        verify(loggerMock).info("User updated -> cpf:{} fields:{}", "1234567890", values.keySet());
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.UPDATED));
+        assertThat(result.getVersion(), is(4L));
+    }
+
+    @Test
+    void should_probe_the_email_conflicts_only_when_the_email_is_updated() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("email", "New_Email@fake.com");
+        values.put("emailNormalized", "new_email@fake.com");
+
+        toolsMock.when(() -> Tools.isValidEmail("New_Email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "New_Email@fake.com")).thenReturn(probe(true, false));
+        when(userRepositoryMock.updateFields("1234567890", values, null)).thenReturn(7L);
+
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().email(JsonNullable.of("New_Email@fake.com")).build(), null);
+
+        toolsMock.verify(() -> Tools.isValidEmail("New_Email@fake.com"));
+        verify(userRepositoryMock).probeConflicts("1234567890", "New_Email@fake.com");
+        verify(userRepositoryMock).updateFields("1234567890", values, null);
+        verify(loggerMock).info("User updated -> cpf:{} fields:{}", "1234567890", values.keySet());
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.UPDATED));
+    }
+
+    @Test
+    void should_not_update_the_fields_sent_when_the_email_is_assigned_to_another_user() {
+        toolsMock.when(() -> Tools.isValidEmail("email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.probeConflicts("1234567890", "email@fake.com")).thenReturn(probe(true, true));
+
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().email(JsonNullable.of("email@fake.com")).build(), null);
+
+        verify(userRepositoryMock).probeConflicts("1234567890", "email@fake.com");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.CONFLICT));
+        assertThat(result.getReason(), is("Conflict: This email has been assigned another user!"));
+    }
+
+    @Test
+    void should_not_update_the_fields_sent_when_the_age_is_not_admited() {
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().dateOfBirth(Date.valueOf(LocalDate.of(2020, 1, 1))).build(), null);
+
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.CONFLICT));
+        assertThat(result.getReason(), is("Conflict: Only users over 18 years of age must be registered!"));
+    }
+
+    @Test
+    void should_tell_the_user_was_modified_when_nothing_was_updated_and_it_exists() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("lastName", "New Last Name");
+        values.put("lastNameSearch", "new last name");
+
+        toolsMock.when(() -> Tools.normalizeForSearch("New Last Name")).thenReturn("new last name");
+        when(userRepositoryMock.updateFields("1234567890", values, 2L)).thenReturn(null);
+        when(userRepositoryMock.existsById("1234567890")).thenReturn(true);
+
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().lastName("New Last Name").build(), 2L);
+
+        verify(userRepositoryMock).updateFields("1234567890", values, 2L);
+        verify(userRepositoryMock).existsById("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.MODIFIED));
+    }
+
+    @Test
+    void should_tell_the_user_was_not_found_when_nothing_was_updated_without_a_version() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("lastName", "New Last Name");
+        values.put("lastNameSearch", "new last name");
+
+        toolsMock.when(() -> Tools.normalizeForSearch("New Last Name")).thenReturn("new last name");
+        when(userRepositoryMock.updateFields("1234567890", values, null)).thenReturn(null);
+
+        UserUpdateResultDto result = userService.updateFields("1234567890",
+                UserDto.builder().lastName("New Last Name").build(), null);
+
+        verify(userRepositoryMock).updateFields("1234567890", values, null);
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.NOT_FOUND));
+    }
+
+    @Test
+    void should_check_the_version_when_there_are_no_fields_to_update() {
+        when(userRepositoryMock.findVersionByCpf("1234567890")).thenReturn(Optional.of(3L));
+
+        UserUpdateResultDto matching = userService.updateFields("1234567890", UserDto.builder().build(), 3L);
+        UserUpdateResultDto stale = userService.updateFields("1234567890", UserDto.builder().build(), 2L);
+        UserUpdateResultDto unconditional = userService.updateFields("1234567890", UserDto.builder().build(), null);
+
+        verify(userRepositoryMock, times(3)).findVersionByCpf("1234567890");
+        assertThat(matching.getStatus(), is(UserUpdateResultDto.Status.UPDATED));
+        assertThat(matching.getVersion(), is(3L));
+        assertThat(stale.getStatus(), is(UserUpdateResultDto.Status.MODIFIED));
+        assertThat(unconditional.getStatus(), is(UserUpdateResultDto.Status.UPDATED));
+        assertThat(unconditional.getVersion(), is(3L));
+    }
+
+    @Test
+    void should_tell_the_user_was_not_found_when_there_are_no_fields_to_update() {
+        when(userRepositoryMock.findVersionByCpf("1234567890")).thenReturn(Optional.empty());
+
+        UserUpdateResultDto result = userService.updateFields("1234567890", UserDto.builder().build(), 3L);
+
+        verify(userRepositoryMock).findVersionByCpf("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.NOT_FOUND));
+    }
+
+    @Test
+    void should_update_the_user_loaded_flushing_its_changes_without_reading_it_again() {
+        UserModel userModel = registeredUser();
+        toolsMock.when(() -> Tools.isValidEmail("new_email@fake.com")).thenReturn(true);
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.of(userModel));
+        when(userRepositoryMock.probeConflicts("1234567890", "new_email@fake.com")).thenReturn(probe(false, false));
+
+        UserUpdateResultDto result = userService.update("1234567890", version -> version == 3L,
+                user -> user.setEmail("new_email@fake.com"), user -> new ArrayList<>());
+
+        verify(userRepositoryMock).findById("1234567890");
+        verify(userRepositoryMock).probeConflicts("1234567890", "new_email@fake.com");
+        verify(userRepositoryMock).saveAndFlush(userModel);
+        verify(userExistenceFilterMock).add(userModel);
+        verify(loggerMock).info("User saved -> cpf:{}", "1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.UPDATED));
+        assertThat(result.getUser(), is(userModel));
+        assertThat(userModel.getEmail(), is("new_email@fake.com"));
+    }
+
+    @Test
+    void should_not_change_the_user_loaded_when_its_changes_break_a_rule() {
+        UserModel userModel = registeredUser();
+        toolsMock.when(() -> Tools.isValidEmail("incorrectEmail")).thenReturn(false);
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.of(userModel));
+
+        UserUpdateResultDto result = userService.update("1234567890", version -> true,
+                user -> user.setEmail("incorrectEmail"), user -> new ArrayList<>());
+
+        verify(userRepositoryMock).findById("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.CONFLICT));
+        assertThat(result.getReason(), is("Conflict: This email is invalid!"));
+        assertThat(userModel.getEmail(), is("old_email@fake.com"));
+    }
+
+    @Test
+    void should_not_update_the_user_when_its_changes_break_its_constraints() {
+        UserModel userModel = registeredUser();
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.of(userModel));
+
+        UserUpdateResultDto result = userService.update("1234567890", version -> true,
+                user -> user.setFirstName(""), user -> Arrays.asList("firstName: must not be blank"));
+
+        verify(userRepositoryMock).findById("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.CONFLICT));
+        assertThat(result.getErrors(), is(Arrays.asList("firstName: must not be blank")));
+        assertThat(userModel.getFirstName(), is("Old First Name"));
+    }
+
+    @Test
+    void should_not_update_the_user_when_its_version_does_not_meet_the_precondition() {
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.of(registeredUser()));
+
+        UserUpdateResultDto result = userService.update("1234567890", version -> version == 2L,
+                user -> user.setFirstName("New First Name"), user -> new ArrayList<>());
+
+        verify(userRepositoryMock).findById("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.MODIFIED));
+    }
+
+    @Test
+    void should_tell_the_user_to_update_was_not_found() {
+        when(userRepositoryMock.findById("1234567890")).thenReturn(Optional.empty());
+
+        UserUpdateResultDto result = userService.update("1234567890", version -> true,
+                user -> user.setFirstName("New First Name"), user -> new ArrayList<>());
+
+        verify(userRepositoryMock).findById("1234567890");
+        assertThat(result.getStatus(), is(UserUpdateResultDto.Status.NOT_FOUND));
+    }
+
+    //region private methods
+    private static UserModel registeredUser() {
+        UserModel userModel = UserModel.builder()
+                .cpf("1234567890")
+                .firstName("Old First Name")
+                .lastName("Old Last Name")
+                .dateOfBirth(Date.valueOf(LocalDate.of(1989, 1, 1)))
+                .email("old_email@fake.com")
+                .build();
+        WhiteboxImpl.setInternalState(userModel, "version", 3L);
+        return userModel;
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("duplicate key", new ConstraintViolationException("duplicate key",
+                new SQLException("duplicate key", "23505"), constraintName));
+    }
+
+    private static UserConflictProbe probe(boolean cpfTaken, boolean emailTaken) {
+        return new UserConflictProbe() {
+            @Override
+            public boolean isCpfTaken() {
+                return cpfTaken;
+            }
+
+            @Override
+            public boolean isEmailTaken() {
+                return emailTaken;
+            }
+        };
+    }
+    //endregion
+}
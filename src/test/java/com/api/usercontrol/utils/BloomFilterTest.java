@@ -0,0 +1,76 @@
+package com.api.usercontrol.utils;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+    private static final int CPF_COUNT = 10_000_000;
+    private static final int ABSENT_CPF_COUNT = 1_000_000;
+
+    @Test
+    public void should_contain_every_value_put() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+
+        boolean changed = bloomFilter.put("52998224725");
+        boolean changedAgain = bloomFilter.put("52998224725");
+
+        assertTrue(changed);
+        assertFalse(changedAgain);
+        assertTrue(bloomFilter.mightContain("52998224725"));
+        assertTrue(bloomFilter.mightContain(new StringBuilder("52998224725")));
+        assertFalse(bloomFilter.mightContain("11144477735"));
+    }
+
+    @Test
+    public void should_reject_an_invalid_sizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 1));
+    }
+
+    // about 20 seconds, left out of the default run
+    @Test
+    @Tag("slow")
+    public void should_hold_ten_million_cpfs_without_false_negatives_and_near_the_configured_false_positive_rate() {
+        BloomFilter bloomFilter = new BloomFilter(CPF_COUNT, 0.01);
+
+        // even numbers are registered, odd ones are not
+        for (long i = 0; i < CPF_COUNT; i++) {
+            bloomFilter.put(syntheticCpf(2 * i));
+        }
+
+        for (long i = 0; i < CPF_COUNT; i++) {
+            if (!bloomFilter.mightContain(syntheticCpf(2 * i))) {
+                throw new AssertionError("False negative for " + syntheticCpf(2 * i));
+            }
+        }
+        int falsePositives = 0;
+        for (long i = 0; i < ABSENT_CPF_COUNT; i++) {
+            if (bloomFilter.mightContain(syntheticCpf(2 * i + 1))) {
+                falsePositives++;
+            }
+        }
+
+        double falsePositiveRate = (double) falsePositives / ABSENT_CPF_COUNT;
+        assertThat(falsePositiveRate, lessThan(0.015));
+        assertThat(bloomFilter.expectedFalsePositiveRate(), lessThan(0.015));
+        assertThat(bloomFilter.memoryBytes() < 13 * 1024 * 1024, is(true));
+    }
+
+    //region private methods
+    private static String syntheticCpf(long number) {
+        char[] digits = new char[11];
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(digits);
+    }
+    //endregion
+}
@@ -0,0 +1,97 @@
+package com.api.usercontrol.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CpfValidatorTest {
+
+    @Test
+    public void should_accept_a_valid_cpf_with_and_without_punctuation() {
+        assertTrue(CpfValidator.isValid("52998224725"));
+        assertTrue(CpfValidator.isValid("529.982.247-25"));
+        assertTrue(CpfValidator.isValid(new StringBuilder("111.444.777/35")));
+    }
+
+    @Test
+    public void should_reject_an_invalid_cpf() {
+        assertFalse(CpfValidator.isValid("52998224724"));
+        assertFalse(CpfValidator.isValid("11111111111"));
+        assertFalse(CpfValidator.isValid("5299822472"));
+        assertFalse(CpfValidator.isValid("529982247250"));
+        assertFalse(CpfValidator.isValid("5299822472a"));
+        assertFalse(CpfValidator.isValid(""));
+        assertFalse(CpfValidator.isValid(null));
+    }
+
+    @Test
+    public void should_pack_the_digits_of_a_valid_cpf_into_a_long() {
+        assertThat(CpfValidator.pack("529.982.247-25"), is(52998224725L));
+        assertThat(CpfValidator.pack("01234567890"), is(1234567890L));
+        assertThat(CpfValidator.pack("52998224724"), is(CpfValidator.INVALID));
+    }
+
+    @Test
+    public void should_match_the_check_digit_algorithm_it_replaces() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            char[] digits = new char[11];
+            for (int j = 0; j < 9; j++) {
+                digits[j] = (char) ('0' + random.nextInt(10));
+            }
+            // half of the samples get their real check digits so both outcomes are covered
+            String prefix = new String(digits, 0, 9);
+            String cpf = random.nextBoolean()
+                    ? prefix + checkDigits(prefix)
+                    : prefix + random.nextInt(10) + random.nextInt(10);
+
+            assertThat(cpf, CpfValidator.isValid(cpf), is(isValidCpfByRemainder(cpf)));
+        }
+    }
+
+    //region private methods
+    private static String checkDigits(String prefix) {
+        int firstSum = 0;
+        for (int i = 0; i < 9; i++) {
+            firstSum += (prefix.charAt(i) - '0') * (10 - i);
+        }
+        int first = 11 - firstSum % 11 >= 10 ? 0 : 11 - firstSum % 11;
+
+        int secondSum = first * 2;
+        for (int i = 0; i < 9; i++) {
+            secondSum += (prefix.charAt(i) - '0') * (11 - i);
+        }
+        int second = 11 - secondSum % 11 >= 10 ? 0 : 11 - secondSum % 11;
+
+        return "" + first + second;
+    }
+
+    // the modulo 11 rule as it was written in Tools before the single pass validator
+    private static boolean isValidCpfByRemainder(String cpf) {
+        if (cpf.chars().distinct().count() == 1) {
+            return false;
+        }
+
+        int sm = 0;
+        for (int i = 0, peso = 10; i < 9; i++, peso--) {
+            sm += (cpf.charAt(i) - 48) * peso;
+        }
+        int r = 11 - (sm % 11);
+        char dig10 = (r == 10) || (r == 11) ? '0' : (char) (r + 48);
+
+        sm = 0;
+        for (int i = 0, peso = 11; i < 10; i++, peso--) {
+            sm += (cpf.charAt(i) - 48) * peso;
+        }
+        r = 11 - (sm % 11);
+        char dig11 = (r == 10) || (r == 11) ? '0' : (char) (r + 48);
+
+        return dig10 == cpf.charAt(9) && dig11 == cpf.charAt(10);
+    }
+    //endregion
+}
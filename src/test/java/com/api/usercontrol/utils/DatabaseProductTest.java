@@ -0,0 +1,39 @@
+package com.api.usercontrol.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DatabaseProductTest {
+
+    @Test
+    public void should_tell_postgresql_from_other_databases() throws Exception {
+        DataSource dataSourceMock = mock(DataSource.class);
+        Connection connectionMock = mock(Connection.class);
+        DatabaseMetaData metaDataMock = mock(DatabaseMetaData.class);
+        when(dataSourceMock.getConnection()).thenReturn(connectionMock);
+        when(connectionMock.getMetaData()).thenReturn(metaDataMock);
+        when(metaDataMock.getDatabaseProductName()).thenReturn("PostgreSQL", "H2");
+
+        assertThat(DatabaseProduct.isPostgreSql(dataSourceMock), is(true));
+        assertThat(DatabaseProduct.isPostgreSql(connectionMock), is(false));
+        verify(connectionMock).close();
+    }
+
+    @Test
+    public void should_not_take_a_database_that_cannot_be_reached_for_postgresql() throws Exception {
+        DataSource dataSourceMock = mock(DataSource.class);
+        when(dataSourceMock.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertThat(DatabaseProduct.isPostgreSql(dataSourceMock), is(false));
+    }
+}
@@ -0,0 +1,92 @@
+package com.api.usercontrol.utils;
+
+import com.api.usercontrol.configs.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmailValidatorTest {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(Config.EMAIL_REGEXP_FORMAT);
+    private static final Pattern EMAIL_PATTERN_IGNORE_CASE =
+            Pattern.compile(Config.EMAIL_REGEXP_FORMAT, Pattern.CASE_INSENSITIVE);
+
+    private static final String LOCAL_PART_CHARACTERS = "aZ09._%+-";
+    private static final String DOMAIN_CHARACTERS = "bY18.-";
+    private static final String NOISE_CHARACTERS = "@.-_ #!çA1";
+    private static final String[] TOP_LEVEL_DOMAINS = {
+            "br", "Br", "BR", "b1", "b", "com", "COM", "Com", "info", "INFO", "museum", "museu", "museums",
+            "co", "org", "Org", "jobs", "aero", "asia", "mobi", "name", "mil", "gov", "edu", "net", "biz", ""
+    };
+
+    @Test
+    public void should_accept_valid_emails() {
+        assertTrue(EmailValidator.isValid(""));
+        assertTrue(EmailValidator.isValid("email@fake.com"));
+        assertTrue(EmailValidator.isValid("first.last+tag%x@sub-domain.example.br"));
+        assertTrue(EmailValidator.isValid("a@b..museum"));
+        assertTrue(EmailValidator.isValidIgnoreCase("EMAIL@FAKE.COM"));
+    }
+
+    @Test
+    public void should_reject_invalid_emails() {
+        assertFalse(EmailValidator.isValid("@fake.com"));
+        assertFalse(EmailValidator.isValid("email@.com"));
+        assertFalse(EmailValidator.isValid("email@fake"));
+        assertFalse(EmailValidator.isValid("email@fake.c"));
+        assertFalse(EmailValidator.isValid("email@fake.company"));
+        assertFalse(EmailValidator.isValid("email@fa@ke.com"));
+        assertFalse(EmailValidator.isValid("e mail@fake.com"));
+        assertFalse(EmailValidator.isValid("email@fake.com\n"));
+        assertFalse(EmailValidator.isValid("EMAIL@FAKE.COM"));
+    }
+
+    @Test
+    public void should_accept_the_same_emails_as_the_regular_expression() {
+        Random random = new Random(20221018);
+        for (int i = 0; i < 200_000; i++) {
+            String email = random.nextInt(4) == 0 ? randomString(random) : randomEmail(random);
+
+            assertThat(email, EmailValidator.isValid(email), is(EMAIL_PATTERN.matcher(email).matches()));
+            assertThat(email, EmailValidator.isValidIgnoreCase(email),
+                    is(EMAIL_PATTERN_IGNORE_CASE.matcher(email).matches()));
+        }
+    }
+
+    //region private methods
+    private static String randomEmail(Random random) {
+        StringBuilder email = new StringBuilder();
+        append(email, random, LOCAL_PART_CHARACTERS, random.nextInt(4));
+        if (random.nextInt(5) > 0) {
+            email.append('@');
+        }
+        append(email, random, DOMAIN_CHARACTERS, random.nextInt(5));
+        if (random.nextInt(5) > 0) {
+            email.append('.');
+        }
+        email.append(TOP_LEVEL_DOMAINS[random.nextInt(TOP_LEVEL_DOMAINS.length)]);
+        // sprinkle a character from outside the expected classes now and then
+        if (random.nextInt(6) == 0) {
+            email.insert(random.nextInt(email.length() + 1), NOISE_CHARACTERS.charAt(random.nextInt(NOISE_CHARACTERS.length())));
+        }
+        return email.toString();
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder text = new StringBuilder();
+        append(text, random, LOCAL_PART_CHARACTERS + NOISE_CHARACTERS + "comCOMinfo", random.nextInt(12));
+        return text.toString();
+    }
+
+    private static void append(StringBuilder text, Random random, String characters, int length) {
+        for (int i = 0; i < length; i++) {
+            text.append(characters.charAt(random.nextInt(characters.length())));
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,32 @@
+package com.api.usercontrol.validators;
+
+import com.api.usercontrol.dto.UserDto;
+import org.junit.jupiter.api.Test;
+import org.openapitools.jackson.nullable.JsonNullable;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ValidEmailTest {
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    public void should_validate_the_email_wrapped_in_a_json_nullable() {
+        Set<ConstraintViolation<UserDto>> invalid = validator.validateProperty(
+                UserDto.builder().email(JsonNullable.of("incorrectEmail")).build(), "email");
+        Set<ConstraintViolation<UserDto>> valid = validator.validateProperty(
+                UserDto.builder().email(JsonNullable.of("EMAIL@FAKE.COM")).build(), "email");
+        Set<ConstraintViolation<UserDto>> explicitNull = validator.validateProperty(
+                UserDto.builder().email(JsonNullable.of(null)).build(), "email");
+
+        assertThat(invalid.size(), is(1));
+        assertThat(invalid.iterator().next().getMessage(), is("must be a well-formed email address"));
+        assertThat(valid.isEmpty(), is(true));
+        assertThat(explicitNull.isEmpty(), is(true));
+    }
+}
@@ -4,14 +4,22 @@ INSERT INTO tb_user
      email,
      first_name,
      last_name,
-     registration_date)
+     registration_date,
+     first_name_search,
+     last_name_search,
+     email_normalized,
+     version)
 VALUES
     ('11111111101',
      '2010-01-01',
      'one_email@fake.com',
      'One First Name',
      'One Last Name',
-     '2022-09-13 04:40:47.194069');
+     '2022-09-13 04:40:47.194069',
+     'one first name',
+     'one last name',
+     'one_email@fake.com',
+     0);
 
 INSERT INTO tb_user
 (cpf,
@@ -19,11 +27,19 @@ INSERT INTO tb_user
  email,
  first_name,
  last_name,
- registration_date)
+ registration_date,
+ first_name_search,
+ last_name_search,
+ email_normalized,
+ version)
 VALUES
     ('2222222202',
      '2020-01-01',
      'Other_email@fake.com',
      'Other First Name',
      'One Last Name',
-     '2022-09-17 04:40:47.194069');
\ No newline at end of file
+     '2022-09-17 04:40:47.194069',
+     'other first name',
+     'one last name',
+     'other_email@fake.com',
+     0);
\ No newline at end of file